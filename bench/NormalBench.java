@@ -0,0 +1,90 @@
+/*
+ * Compares the speed and agreement of the "accurate" and "fast" 
+ * precisions of the normal and lognormal distribution functions and their
+ * inverses.  Run it with "make bench".  Each function is called on the 
+ * same set of arguments in each mode, after a warm-up, and the time per
+ * call and the largest absolute and relative differences between the 
+ * modes are reported.
+ */
+package org.nlogo.extensions.stats;
+
+import java.util.Random;
+import org.nlogo.api.ExtensionException;
+
+public class NormalBench {
+
+  private static final int n = 1000000;
+  private static final int rounds = 5;
+
+  // The functions compared.
+  private static final String[] names = {"normal-left", "normal-inverse",
+    "lognormal-left", "lognormal-inverse"};
+
+  public static void main(String[] args) throws ExtensionException {
+    Random rng = new Random(1);
+    double[] xs = new double[n];
+    double[] areas = new double[n];
+    double[] positives = new double[n];
+    for (int i = 0; i < n; i++) {
+      xs[i] = 4.0 * rng.nextGaussian();
+      areas[i] = rng.nextDouble() * 0.999998 + 0.000001;
+      positives[i] = Math.exp(rng.nextGaussian());
+    }
+    System.out.printf("%-18s %12s %12s %8s %14s %14s%n", "function",
+            "accurate ns", "fast ns", "speedup", "max abs diff",
+            "max rel diff");
+    for (int f = 0; f < names.length; f++) {
+      double[] in = (f == 0) ? xs : (f == 2) ? positives : areas;
+      double[] accurate = new double[n];
+      double[] fast = new double[n];
+      double tAccurate = time(f, in, accurate, false);
+      double tFast = time(f, in, fast, true);
+      double maxDiff = 0.0;
+      double maxRelDiff = 0.0;
+      for (int i = 0; i < n; i++) {
+        double diff = Math.abs(fast[i] - accurate[i]);
+        maxDiff = Math.max(maxDiff, diff);
+        if (accurate[i] != 0.0) {
+          maxRelDiff = Math.max(maxRelDiff, diff / Math.abs(accurate[i]));
+        }
+      }
+      System.out.printf("%-18s %12.1f %12.1f %7.1fx %14.2e %14.2e%n",
+              names[f], tAccurate, tFast, tAccurate / tFast, maxDiff,
+              maxRelDiff);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static double time(int f, double[] in, double[] out,
+          boolean fast) throws ExtensionException {
+    // Returns the best time per call, in nanoseconds, over several rounds,
+    // the first of which warms up the JIT.
+    double best = Double.MAX_VALUE;
+    for (int r = 0; r <= rounds; r++) {
+      long t0 = System.nanoTime();
+      for (int i = 0; i < n; i++) {
+        out[i] = call(f, in[i], fast);
+      }
+      long t1 = System.nanoTime();
+      if (r > 0) {
+        best = Math.min(best, (double) (t1 - t0) / n);
+      }
+    }
+    return best;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static double call(int f, double x, boolean fast)
+          throws ExtensionException {
+    switch (f) {
+      case 0:
+        return Distributions.getNormalArea(x, 0.0, 1.0, fast);
+      case 1:
+        return Distributions.getNormalInverse(x, 0.0, 1.0, fast);
+      case 2:
+        return Distributions.getLogNormalArea(x, 0.0, 1.0, fast);
+      default:
+        return Distributions.getLogNormalInverse(x, 0.0, 1.0, fast);
+    }
+  }
+}
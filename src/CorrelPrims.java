@@ -101,4 +101,60 @@ public class CorrelPrims {
             return result;
         }
     }
-}
\ No newline at end of file
+
+    /* ---------------------------------------------------------------------- */
+    public static class CorrelationOf implements Reporter {
+        // Find the correlation matrix of just the listed variables, given
+        // by number or name, over the most recent tbl.useObs periods.  
+        // Only the requested block is computed, which is much cheaper than
+        // the full matrix when the table has many variables.
+
+        @Override
+        public Syntax getSyntax() {
+            return SyntaxJ.reporterSyntax(new int[]{Syntax.WildcardType(),
+                        Syntax.ListType()}, Syntax.ListType());
+        }
+
+        @Override
+        public Object report(Argument args[], Context context)
+                throws ExtensionException, LogoException {
+
+            LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
+            int[] vars = ExtnUtils.getVarNumbersFromList(tbl,
+                    args[1].getList(), "correlation-of");
+            double[][] mat = tbl.getCorrelations(vars);
+            if (mat == null) {
+                throw new org.nlogo.api.ExtensionException(
+                        "Less than two observations.");
+            }
+            return ExtnUtils.convertArrayToNestedLogoList(mat);
+        }
+    }
+
+    /* ---------------------------------------------------------------------- */
+    public static class CovarianceOf implements Reporter {
+        // Find the variance-covariance matrix of just the listed variables,
+        // given by number or name, over the most recent tbl.useObs periods.
+
+        @Override
+        public Syntax getSyntax() {
+            return SyntaxJ.reporterSyntax(new int[]{Syntax.WildcardType(),
+                        Syntax.ListType()}, Syntax.ListType());
+        }
+
+        @Override
+        public Object report(Argument args[], Context context)
+                throws ExtensionException, LogoException {
+
+            LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
+            int[] vars = ExtnUtils.getVarNumbersFromList(tbl,
+                    args[1].getList(), "covariance-of");
+            double[][] mat = tbl.getVarCovars(vars);
+            if (mat == null) {
+                throw new org.nlogo.api.ExtensionException(
+                        "Less than two observations.");
+            }
+            return ExtnUtils.convertArrayToNestedLogoList(mat);
+        }
+    }
+}
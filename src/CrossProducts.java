@@ -0,0 +1,209 @@
+/*
+ * Computes the means and the co-moments (the sums of the cross-products
+ * of the deviations from the means) of a set of columns of the data table
+ * in one go, for building running moments over many observations at once
+ * rather than by one rank-one update per observation.
+ *
+ * The kernel works on tiles of rows: each column's slice of the tile is
+ * centered into a small buffer that stays in cache while the dot products
+ * of every pair of columns are taken over it, and only the upper triangle
+ * of the symmetric result is formed.  Large jobs are split into blocks of
+ * rows that are run on a ForkJoin pool, and the partial co-moments of the
+ * blocks are summed.  The pool is created when first needed, is bounded
+ * by the number of processors and, as its threads are daemons, never
+ * holds up NetLogo's exit.
+ */
+package org.nlogo.extensions.stats;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public final class CrossProducts {
+
+  // Below minRows observations, building the moments one observation at a
+  // time is as quick.  Below minParallelWork multiply-adds, the kernel
+  // runs on the calling thread.
+  static final int minRows = 256;
+  private static final long minParallelWork = 1L << 22;
+  private static final int tileRows = 256;
+  private static final int minBlockRows = 4096;
+  private static ForkJoinPool pool = null;
+
+  private CrossProducts() {
+  }
+
+  // This method returns the shared pool for the extension's parallel
+  // computations.
+  static synchronized ForkJoinPool getPool() {
+    if (pool == null) {
+      pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+    return pool;
+  }
+
+  // This method finds the means of columns cols of data over the n rows
+  // beginning with row first, putting them in mean, and the co-moments of
+  // those columns, putting them in the upper triangle of comoment.
+  public static void centeredMoments(double[][] data, int[] cols, int first,
+          int n, double[] mean, double[][] comoment) {
+    int k = cols.length;
+    // The means come first, so that the co-moments can be summed from
+    // centered values, which is far more accurate than subtracting n times
+    // the products of the means from the raw cross-products.
+    for (int j = 0; j < k; j++) {
+      double[] col = data[cols[j]];
+      double sum = 0.0;
+      for (int i = first; i < first + n; i++) {
+        sum += col[i];
+      }
+      mean[j] = sum / n;
+    }
+    double[][] g;
+    long work = (long) n * k * (k + 1) / 2;
+    if (work < minParallelWork || n < 2 * minBlockRows) {
+      g = gram(data, cols, mean, first, first + n);
+    } else {
+      int parallelism = getPool().getParallelism();
+      int blockRows = Math.max(minBlockRows, n / (4 * parallelism) + 1);
+      g = getPool().invoke(new GramTask(data, cols, mean, first,
+              first + n, blockRows));
+    }
+    for (int j = 0; j < k; j++) {
+      System.arraycopy(g[j], j, comoment[j], j, k - j);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static double[][] gram(double[][] data, int[] cols, double[] mean,
+          int from, int to) {
+    // Returns the upper triangle of the co-moments of rows from ... to-1,
+    // about the given means, working a tile of rows at a time.
+    int k = cols.length;
+    double[][] g = new double[k][k];
+    double[][] tile = new double[k][tileRows];
+    for (int r0 = from; r0 < to; r0 += tileRows) {
+      int len = Math.min(tileRows, to - r0);
+      for (int j = 0; j < k; j++) {
+        double[] col = data[cols[j]];
+        double[] t = tile[j];
+        double mj = mean[j];
+        for (int i = 0; i < len; i++) {
+          t[i] = col[r0 + i] - mj;
+        }
+      }
+      // Two columns, j and j + 1, are paired with four columns at a time,
+      // which keeps eight independent sums going from six loads per row.
+      // The pairing of column j + 1 with column j lands in the lower
+      // triangle, which is never read.
+      int j = 0;
+      for (; j + 1 < k; j += 2) {
+        double[] ta = tile[j];
+        double[] tb = tile[j + 1];
+        double[] ga = g[j];
+        double[] gb = g[j + 1];
+        int l = j;
+        for (; l + 3 < k; l += 4) {
+          double[] t0 = tile[l];
+          double[] t1 = tile[l + 1];
+          double[] t2 = tile[l + 2];
+          double[] t3 = tile[l + 3];
+          double a0 = 0.0;
+          double a1 = 0.0;
+          double a2 = 0.0;
+          double a3 = 0.0;
+          double b0 = 0.0;
+          double b1 = 0.0;
+          double b2 = 0.0;
+          double b3 = 0.0;
+          for (int i = 0; i < len; i++) {
+            double xa = ta[i];
+            double xb = tb[i];
+            double x0 = t0[i];
+            double x1 = t1[i];
+            double x2 = t2[i];
+            double x3 = t3[i];
+            a0 += xa * x0;
+            a1 += xa * x1;
+            a2 += xa * x2;
+            a3 += xa * x3;
+            b0 += xb * x0;
+            b1 += xb * x1;
+            b2 += xb * x2;
+            b3 += xb * x3;
+          }
+          ga[l] += a0;
+          ga[l + 1] += a1;
+          ga[l + 2] += a2;
+          ga[l + 3] += a3;
+          gb[l] += b0;
+          gb[l + 1] += b1;
+          gb[l + 2] += b2;
+          gb[l + 3] += b3;
+        }
+        for (; l < k; l++) {
+          double[] tl = tile[l];
+          double sa = 0.0;
+          double sb = 0.0;
+          for (int i = 0; i < len; i++) {
+            sa += ta[i] * tl[i];
+            sb += tb[i] * tl[i];
+          }
+          ga[l] += sa;
+          gb[l] += sb;
+        }
+      }
+      if (j < k) {
+        double[] tj = tile[j];
+        double s = 0.0;
+        for (int i = 0; i < len; i++) {
+          s += tj[i] * tj[i];
+        }
+        g[j][j] += s;
+      }
+    }
+    return g;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  @SuppressWarnings("serial")
+  private static final class GramTask extends RecursiveTask<double[][]> {
+    // Splits its rows in half until they fit in a block, and sums the
+    // co-moments of the halves.
+
+    private final double[][] data;
+    private final int[] cols;
+    private final double[] mean;
+    private final int from;
+    private final int to;
+    private final int blockRows;
+
+    GramTask(double[][] data, int[] cols, double[] mean, int from, int to,
+            int blockRows) {
+      this.data = data;
+      this.cols = cols;
+      this.mean = mean;
+      this.from = from;
+      this.to = to;
+      this.blockRows = blockRows;
+    }
+
+    @Override
+    protected double[][] compute() {
+      if (to - from <= blockRows) {
+        return gram(data, cols, mean, from, to);
+      }
+      int mid = (from + to) >>> 1;
+      GramTask lower = new GramTask(data, cols, mean, from, mid, blockRows);
+      lower.fork();
+      double[][] g = new GramTask(data, cols, mean, mid, to, blockRows)
+              .compute();
+      double[][] h = lower.join();
+      for (int j = 0; j < g.length; j++) {
+        for (int l = j; l < g.length; l++) {
+          g[j][l] += h[j][l];
+        }
+      }
+      return g;
+    }
+  }
+}
@@ -9,10 +9,6 @@ import org.nlogo.api.*;
 import org.nlogo.core.Syntax;
 import org.nlogo.core.SyntaxJ;
 
-import cern.colt.list.DoubleArrayList;
-import cern.colt.Sorting;
-import cern.jet.stat.Descriptive;
-
 public class DescripPrims {
 
   public static class GetMeans implements Reporter {
@@ -62,13 +58,7 @@ public class DescripPrims {
     public Object report(Argument args[], Context context)
             throws ExtensionException, LogoException {
       LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
-      LogoListBuilder lst = new LogoListBuilder();
-      for (int i = 0; i < tbl.getNVars(); i++) {
-        double[] X = tbl.getColumn(i, true);
-        Sorting.mergeSort(X, 0, X.length);
-        lst.add(Descriptive.median(new DoubleArrayList(X)));
-      }
-      return lst.toLogoList();
+      return ExtnUtils.convertVectorToSimpleLogoList(tbl.getMedians());
     }
   }
 
@@ -98,9 +88,7 @@ public class DescripPrims {
         throw new ExtensionException("The percent must be between"
                 + " 0.0 and 100.0, inclusive.");
       }
-      double[] X = tbl.getColumn(varNumber, true);
-      Sorting.mergeSort(X, 0, X.length);
-      return Descriptive.quantile(new DoubleArrayList(X), pcnt);
+      return tbl.getQuantile(varNumber, pcnt);
     }
   }
 
@@ -120,31 +108,58 @@ public class DescripPrims {
             throws ExtensionException, LogoException {
       LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
       int varNumber = ExtnUtils.getVarNumberFromArg(tbl, args[1]);
-      int n;
-      try {
-        n = args[2].getIntValue();
-      } catch (LogoException e) {
-        throw new ExtensionException(e.getMessage());
-      }
-      if (n < 0) {
-        throw new ExtensionException("The number of quantiles must be"
-                + " greater or equal to zero.");
-      }
-      double incr = 1.0 / n;
-      double[] breaks = new double[n + 1];
-      for (int i = 0; i < n; i++) {
-        breaks[i] = incr * i;
-      }
-      breaks[n] = 1.0;
-      double[] X = tbl.getColumn(varNumber, true);
-      Sorting.mergeSort(X, 0, X.length);
-      DoubleArrayList results
-              = Descriptive.quantiles(new DoubleArrayList(X),
-                      new DoubleArrayList(breaks));
-      return ExtnUtils.convertVectorToSimpleLogoList(results.elements());
+      double[] breaks = quantileBreaks(args[2]);
+      return ExtnUtils.convertVectorToSimpleLogoList(
+              tbl.getQuantiles(varNumber, breaks));
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class QuantilesAll implements Reporter {
+    // Returns a list of the n + 1 quantile breaks of each of the variables
+    // in the data table, in the order of the variables.
+
+    @Override
+    public Syntax getSyntax() {
+      return SyntaxJ.reporterSyntax(new int[]{Syntax.WildcardType(),
+        Syntax.NumberType()},
+              Syntax.ListType());
+    }
+
+    @Override
+    public Object report(Argument args[], Context context)
+            throws ExtensionException, LogoException {
+      LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
+      double[] breaks = quantileBreaks(args[1]);
+      return ExtnUtils.convertArrayToNestedLogoList(
+              tbl.getQuantilesAll(breaks));
     }
   }
 
+  /* ---------------------------------------------------------------------- */
+  private static double[] quantileBreaks(Argument arg)
+          throws ExtensionException {
+    // Returns the fractions 0, 1/n, 2/n, ..., 1 for the number of 
+    // quantiles, n, given in arg.
+    int n;
+    try {
+      n = arg.getIntValue();
+    } catch (LogoException e) {
+      throw new ExtensionException(e.getMessage());
+    }
+    if (n < 0) {
+      throw new ExtensionException("The number of quantiles must be"
+              + " greater or equal to zero.");
+    }
+    double incr = 1.0 / n;
+    double[] breaks = new double[n + 1];
+    for (int i = 0; i < n; i++) {
+      breaks[i] = incr * i;
+    }
+    breaks[n] = 1.0;
+    return breaks;
+  }
+
   /* ---------------------------------------------------------------------- */
   public static class Percentile implements Reporter {
     // Returns the "pcnt" quantile break of the variable given by "var".
@@ -167,9 +182,211 @@ public class DescripPrims {
       } catch (LogoException e) {
         throw new ExtensionException(e.getMessage());
       }
-      double[] X = tbl.getColumn(varNumber, true);
-      Sorting.mergeSort(X, 0, X.length);
-      return Descriptive.quantileInverse(new DoubleArrayList(X), nmbr) * 100.0;
+      return tbl.getQuantileInverse(varNumber, nmbr) * 100.0;
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class SetQuantileMethod implements Command {
+    // Sets the way in which the medians, quantiles and percentiles of the 
+    // table are found: "exact" (the default) sorts the observations, 
+    // "sketch" keeps a quantile sketch of each variable as observations 
+    // are added and answers approximately from it, and "indexed" keeps an
+    // order-statistic tree of each variable as observations are added and 
+    // removed and answers exactly from it.
+
+    @Override
+    public Syntax getSyntax() {
+      return SyntaxJ.commandSyntax(new int[]{Syntax.WildcardType(),
+        Syntax.StringType()});
+    }
+
+    @Override
+    public void perform(Argument args[], Context context)
+            throws ExtensionException, LogoException {
+      LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
+      String method;
+      try {
+        method = args[1].getString();
+      } catch (LogoException e) {
+        throw new ExtensionException(e.getMessage());
+      }
+      if (method.equalsIgnoreCase("exact")) {
+        tbl.setQuantileMethod(LogoStatsTbl.QUANTILE_EXACT);
+      } else if (method.equalsIgnoreCase("sketch")) {
+        tbl.setQuantileMethod(LogoStatsTbl.QUANTILE_SKETCH);
+      } else if (method.equalsIgnoreCase("indexed")) {
+        tbl.setQuantileMethod(LogoStatsTbl.QUANTILE_INDEXED);
+      } else {
+        throw new ExtensionException("The quantile method must be"
+                + " \"exact\", \"sketch\" or \"indexed\".");
+      }
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class SetSketchAccuracy implements Command {
+    // Sets the accuracy parameter, k, of the table's quantile sketches.
+    // Larger values give more accurate quantiles at the cost of more 
+    // space, about 3k values per variable.  The default is 200.
+
+    @Override
+    public Syntax getSyntax() {
+      return SyntaxJ.commandSyntax(new int[]{Syntax.WildcardType(),
+        Syntax.NumberType()});
+    }
+
+    @Override
+    public void perform(Argument args[], Context context)
+            throws ExtensionException, LogoException {
+      LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
+      int k;
+      try {
+        k = args[1].getIntValue();
+      } catch (LogoException e) {
+        throw new ExtensionException(e.getMessage());
+      }
+      if (k < 8) {
+        throw new ExtensionException("The sketch accuracy must be"
+                + " at least 8.");
+      }
+      tbl.setSketchAccuracy(k);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class SetDistributionCacheSize implements Command {
+    // Sets the number of Student-t inverses and t and F p-values that are
+    // remembered, so that repeated requests for the same value cost only a
+    // lookup.  Setting the size clears the cache and its counts, and a 
+    // size of zero turns it off.  The default is 1024.  The cache is this
+    // workspace's own.
+
+    private final DistributionCache cache;
+
+    public SetDistributionCacheSize(DistributionCache cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return SyntaxJ.commandSyntax(new int[]{Syntax.NumberType()});
+    }
+
+    @Override
+    public void perform(Argument args[], Context context)
+            throws ExtensionException, LogoException {
+      int n;
+      try {
+        n = args[0].getIntValue();
+      } catch (LogoException e) {
+        throw new ExtensionException(e.getMessage());
+      }
+      if (n < 0) {
+        throw new ExtensionException("The cache size must be"
+                + " greater or equal to zero.");
+      }
+      cache.setSize(n);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class SetPrecision implements Command {
+    // Sets the precision of the normal and lognormal distribution 
+    // functions and their inverses: "accurate" (the default) uses colt's
+    // routines, while "fast" uses approximations that are two to five 
+    // times quicker for the normal, with an absolute error below 1e-10 in
+    // the distribution function and a relative error below 1.2e-9 in its
+    // inverse.  The setting applies only to this model's workspace.  It
+    // does not affect sample-normal or sample-lognormal, which always draw
+    // through colt's generators.
+
+    private final Precision precision;
+
+    public SetPrecision(Precision precision) {
+      this.precision = precision;
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return SyntaxJ.commandSyntax(new int[]{Syntax.StringType()});
+    }
+
+    @Override
+    public void perform(Argument args[], Context context)
+            throws ExtensionException, LogoException {
+      String choice;
+      try {
+        choice = args[0].getString();
+      } catch (LogoException e) {
+        throw new ExtensionException(e.getMessage());
+      }
+      if (choice.equalsIgnoreCase("fast")) {
+        precision.setFast(true);
+      } else if (choice.equalsIgnoreCase("accurate")) {
+        precision.setFast(false);
+      } else {
+        throw new ExtensionException("The precision must be"
+                + " \"accurate\" or \"fast\".");
+      }
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class DistributionCacheStats implements Reporter {
+    // Returns a list of the number of cache hits, the number of misses and
+    // the number of values now in the cache, from which the hit rate 
+    // follows.
+
+    private final DistributionCache cache;
+
+    public DistributionCacheStats(DistributionCache cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return SyntaxJ.reporterSyntax(new int[]{}, Syntax.ListType());
+    }
+
+    @Override
+    public Object report(Argument args[], Context context)
+            throws ExtensionException, LogoException {
+      return ExtnUtils.convertVectorToSimpleLogoList(
+              cache.getStats());
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class UseBinomialTables implements Command {
+    // Specify whether the binomial probabilities and sums should be read
+    // from a table of the whole distribution for each (n, p), built on the
+    // first query, rather than found directly.  This makes asking about
+    // many k for the same n and p much faster.  The tables agree with the
+    // direct values to within about n times the machine epsilon.  The
+    // default is not to use them.
+
+    private final DistributionCache cache;
+
+    public UseBinomialTables(DistributionCache cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return SyntaxJ.commandSyntax(new int[]{Syntax.BooleanType()});
+    }
+
+    @Override
+    public void perform(Argument args[], Context context)
+            throws ExtensionException, LogoException {
+      boolean use;
+      try {
+        use = args[0].getBoolean();
+      } catch (LogoException e) {
+        throw new ExtensionException(e.getMessage());
+      }
+      cache.useBinomialTables(use);
     }
   }
 
@@ -203,6 +420,12 @@ public class DescripPrims {
   public static class NormalArea implements Reporter {
     // Returns the area to the left of x in the Normal distribution.
 
+    private final Precision precision;
+
+    public NormalArea(Precision precision) {
+      this.precision = precision;
+    }
+
     @Override
     public Syntax getSyntax() {
       return SyntaxJ.reporterSyntax(new int[]{Syntax.NumberType(),
@@ -223,7 +446,7 @@ public class DescripPrims {
       } catch (LogoException e) {
         throw new ExtensionException(e.getMessage());
       }
-      return Distributions.getNormalArea(x, m, s);
+      return Distributions.getNormalArea(x, m, s, precision.isFast());
     }
   }
 
@@ -233,6 +456,12 @@ public class DescripPrims {
     // probability density function (integrated from minus infinity to t) 
     // is equal to x.
 
+    private final DistributionCache cache;
+
+    public StudentInverse(DistributionCache cache) {
+      this.cache = cache;
+    }
+
     @Override
     public Syntax getSyntax() {
       return SyntaxJ.reporterSyntax(new int[]{Syntax.NumberType(),
@@ -250,7 +479,7 @@ public class DescripPrims {
       } catch (LogoException e) {
         throw new ExtensionException(e.getMessage());
       }
-      return Distributions.getStudentTInverse(x, df);
+      return Distributions.getStudentTInverse(x, df, cache);
     }
   }
 
@@ -259,6 +488,12 @@ public class DescripPrims {
     // Returns the x in the normal distribution with the given mean and
     // standard deviation, to the left of which lies the given area.
 
+    private final Precision precision;
+
+    public NormalInverse(Precision precision) {
+      this.precision = precision;
+    }
+
     @Override
     public Syntax getSyntax() {
       return SyntaxJ.reporterSyntax(new int[]{Syntax.NumberType(),
@@ -279,7 +514,7 @@ public class DescripPrims {
       } catch (LogoException e) {
         throw new ExtensionException(e.getMessage());
       }
-      return Distributions.getNormalInverse(x, m, s);
+      return Distributions.getNormalInverse(x, m, s, precision.isFast());
     }
   }
 
@@ -342,6 +577,12 @@ public class DescripPrims {
     // Returns the binomial probibility of exactly k successes in
     // n trials, each with probability p.
 
+    private final DistributionCache cache;
+
+    public BinomialProbibility(DistributionCache cache) {
+      this.cache = cache;
+    }
+
     @Override
     public Syntax getSyntax() {
       return SyntaxJ.reporterSyntax(new int[]{Syntax.NumberType(),
@@ -362,8 +603,7 @@ public class DescripPrims {
       } catch (LogoException e) {
         throw new ExtensionException(e.getMessage());
       }
-      return Distributions.getBinomialCoeff(n, k)
-              * Math.pow(p, k) * Math.pow((1.0 - p), (n - k));
+      return Distributions.getBinomialProbability(n, k, p, cache);
     }
   }
   /* ---------------------------------------------------------------------- */
@@ -373,6 +613,12 @@ public class DescripPrims {
     // probability density, where n is the number of trials and p is 
     // the probability of success as a fraction, in the range 0 to 1.
 
+    private final DistributionCache cache;
+
+    public BinomialThroughK(DistributionCache cache) {
+      this.cache = cache;
+    }
+
     @Override
     public Syntax getSyntax() {
       return SyntaxJ.reporterSyntax(new int[]{Syntax.NumberType(),
@@ -392,7 +638,7 @@ public class DescripPrims {
         throw new ExtensionException(e.getMessage());
       }
       double p = args[2].getDoubleValue();
-      return Distributions.getBinomialSum(n, k, p);
+      return Distributions.getBinomialSum(n, k, p, cache);
     }
   }
 
@@ -402,6 +648,12 @@ public class DescripPrims {
     // probability density, where n is the number of trials and P is
     // the probability of success as a fraction in the range 0 to 1.
 
+    private final DistributionCache cache;
+
+    public BinomialComplemented(DistributionCache cache) {
+      this.cache = cache;
+    }
+
     @Override
     public Syntax getSyntax() {
       return SyntaxJ.reporterSyntax(new int[]{Syntax.NumberType(),
@@ -421,7 +673,7 @@ public class DescripPrims {
         throw new ExtensionException(e.getMessage());
       }
       double p = args[2].getDoubleValue();
-      return Distributions.getBinomialComplemented(n, k, p);
+      return Distributions.getBinomialComplemented(n, k, p, cache);
     }
   }
 
@@ -716,6 +968,12 @@ public class DescripPrims {
   // Returns the area to the left of x in the LogNormal distribution
   // with the given location and size parameters.
 
+    private final Precision precision;
+
+    public CDFLogNormal(Precision precision) {
+      this.precision = precision;
+    }
+
     @Override
     public Syntax getSyntax() {
       return SyntaxJ.reporterSyntax(new int[]{Syntax.NumberType(),
@@ -736,8 +994,7 @@ public class DescripPrims {
       } catch (LogoException e) {
         throw new ExtensionException(e.getMessage());
       }
-      double y = (Math.log(x) - m) / s;
-      return Distributions.getNormalArea(y, 0.0, 1.0);
+      return Distributions.getLogNormalArea(x, m, s, precision.isFast());
     }
   }
 
@@ -753,8 +1010,6 @@ public class DescripPrims {
               Syntax.NumberType());
     }
 
-    public final static double C = Math.sqrt(2 * Math.PI);
-
     @Override
     public Object report(Argument args[], Context context)
             throws ExtensionException, LogoException {
@@ -768,9 +1023,7 @@ public class DescripPrims {
       } catch (LogoException e) {
         throw new ExtensionException(e.getMessage());
       }
-      double y = (Math.log(x) - m) / s;
-      return Math.exp(-y * y / 2) / (x * C * s);
-
+      return Distributions.getLogNormalDensity(x, m, s);
     }
   }
 
@@ -780,6 +1033,12 @@ public class DescripPrims {
     // Returns the x in the LogNormal distribution with the given location and
     // size, to the left of which lies the given area.
 
+    private final Precision precision;
+
+    public CDFInverseLogNormal(Precision precision) {
+      this.precision = precision;
+    }
+
     @Override
     public Syntax getSyntax() {
       return SyntaxJ.reporterSyntax(new int[]{Syntax.NumberType(),
@@ -800,16 +1059,282 @@ public class DescripPrims {
       } catch (LogoException e) {
         throw new ExtensionException(e.getMessage());
       }
-      if (a <= 0.0 ) {
-        return 0.0;
+      return Distributions.getLogNormalInverse(a, m, s,
+              precision.isFast());
+    }
+  }
+
+  /* ====================================================================== */
+  // The list versions of the distribution reporters.  Each takes a list of
+  // values in place of one of the scalar arguments of its namesake and
+  // reports the list of results.  The list is read into an array and the
+  // other arguments are read just once, so a model can evaluate a whole 
+  // vector of values for the cost of a single primitive call.
+
+  public abstract static class DistributionList implements Reporter {
+    // The basis of the list reporters.  nargs is the number of arguments,
+    // of which the one at listArg is the list.  The rest are passed, in
+    // order, to value as params.
+
+    private final int nargs;
+    private final int listArg;
+
+    DistributionList(int nargs, int listArg) {
+      this.nargs = nargs;
+      this.listArg = listArg;
+    }
+
+    // Returns the value of the distribution's function at x, the element
+    // of the list, given the other arguments.
+    abstract double value(double x, double[] params)
+            throws ExtensionException;
+
+    @Override
+    public Syntax getSyntax() {
+      int[] types = new int[nargs];
+      for (int i = 0; i < nargs; i++) {
+        types[i] = (i == listArg) ? Syntax.ListType() : Syntax.NumberType();
+      }
+      return SyntaxJ.reporterSyntax(types, Syntax.ListType());
+    }
+
+    @Override
+    public Object report(Argument args[], Context context)
+            throws ExtensionException, LogoException {
+      double[] xs;
+      double[] params = new double[nargs - 1];
+      try {
+        xs = ExtnUtils.convertLogoListToVector(args[listArg].getList());
+        for (int i = 0, j = 0; i < nargs; i++) {
+          if (i != listArg) {
+            params[j++] = args[i].getDoubleValue();
+          }
+        }
+      } catch (LogoException e) {
+        throw new ExtensionException(e.getMessage());
       }
-      if (a >= 1.0) {
-        throw new ExtensionException("The area parameter in lognormal-inverse "
-                + " must be less than 1.0.");
+      double[] results = new double[xs.length];
+      for (int i = 0; i < xs.length; i++) {
+        results[i] = value(xs[i], params);
       }
-      return Math.exp(m + Distributions.getNormalInverse(a, 0, 1) * s);
+      return ExtnUtils.convertVectorToSimpleLogoList(results);
     }
   }
 
   /* ---------------------------------------------------------------------- */
+  public static class NormalDensityList extends DistributionList {
+    // normal-list xs mean sd
+
+    public NormalDensityList() {
+      super(3, 0);
+    }
+
+    @Override
+    double value(double x, double[] params) {
+      return Distributions.getNormalDensity(x, params[0], params[1]);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class NormalAreaList extends DistributionList {
+    // normal-left-list xs mean sd
+
+    private final Precision precision;
+
+    public NormalAreaList(Precision precision) {
+      super(3, 0);
+      this.precision = precision;
+    }
+
+    @Override
+    double value(double x, double[] params) throws ExtensionException {
+      return Distributions.getNormalArea(x, params[0], params[1],
+              precision.isFast());
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class NormalInverseList extends DistributionList {
+    // normal-inverse-list areas mean sd
+
+    private final Precision precision;
+
+    public NormalInverseList(Precision precision) {
+      super(3, 0);
+      this.precision = precision;
+    }
+
+    @Override
+    double value(double x, double[] params) throws ExtensionException {
+      return Distributions.getNormalInverse(x, params[0], params[1],
+              precision.isFast());
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class PDFLogNormalList extends DistributionList {
+    // lognormal-list xs location size
+
+    public PDFLogNormalList() {
+      super(3, 0);
+    }
+
+    @Override
+    double value(double x, double[] params) {
+      return Distributions.getLogNormalDensity(x, params[0], params[1]);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class CDFLogNormalList extends DistributionList {
+    // lognormal-left-list xs location size
+
+    private final Precision precision;
+
+    public CDFLogNormalList(Precision precision) {
+      super(3, 0);
+      this.precision = precision;
+    }
+
+    @Override
+    double value(double x, double[] params) throws ExtensionException {
+      return Distributions.getLogNormalArea(x, params[0], params[1],
+              precision.isFast());
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class CDFInverseLogNormalList extends DistributionList {
+    // lognormal-inverse-list areas location size
+
+    private final Precision precision;
+
+    public CDFInverseLogNormalList(Precision precision) {
+      super(3, 0);
+      this.precision = precision;
+    }
+
+    @Override
+    double value(double x, double[] params) throws ExtensionException {
+      return Distributions.getLogNormalInverse(x, params[0], params[1],
+              precision.isFast());
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class StudentAreaList extends DistributionList {
+    // student-left-list xs df
+
+    public StudentAreaList() {
+      super(2, 0);
+    }
+
+    @Override
+    double value(double x, double[] params) throws ExtensionException {
+      return Distributions.getStudentArea(x, (int) params[0]);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class StudentInverseList extends DistributionList {
+    // student-inverse-list areas df
+
+    private final DistributionCache cache;
+
+    public StudentInverseList(DistributionCache cache) {
+      super(2, 0);
+      this.cache = cache;
+    }
+
+    @Override
+    double value(double x, double[] params) throws ExtensionException {
+      return Distributions.getStudentTInverse(x, (int) params[0], cache);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class ChiSquareList extends DistributionList {
+    // chi-square-left-list xs df
+
+    public ChiSquareList() {
+      super(2, 0);
+    }
+
+    @Override
+    double value(double x, double[] params) throws ExtensionException {
+      if (x < 0.0 || params[0] <= 0) {
+        throw new ExtensionException("The ChiSquare arguments "
+                + "must be positive");
+      }
+      return Distributions.getChiSquare(x, params[0]);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class ChiSquareComplementedList extends DistributionList {
+    // chi-square-right-list xs df
+
+    public ChiSquareComplementedList() {
+      super(2, 0);
+    }
+
+    @Override
+    double value(double x, double[] params) throws ExtensionException {
+      return Distributions.getChiSquareComplemented(x, params[0]);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class BinomialProbibilityList extends DistributionList {
+    // binomial-probability-list n ks p
+
+    private final DistributionCache cache;
+
+    public BinomialProbibilityList(DistributionCache cache) {
+      super(3, 1);
+      this.cache = cache;
+    }
+
+    @Override
+    double value(double x, double[] params) throws ExtensionException {
+      return Distributions.getBinomialProbability((int) params[0], (int) x,
+              params[1], cache);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class BinomialThroughKList extends DistributionList {
+    // binomial-sum-to-list n ks p
+
+    private final DistributionCache cache;
+
+    public BinomialThroughKList(DistributionCache cache) {
+      super(3, 1);
+      this.cache = cache;
+    }
+
+    @Override
+    double value(double x, double[] params) throws ExtensionException {
+      return Distributions.getBinomialSum((int) params[0], (int) x,
+              params[1], cache);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class BinomialComplementedList extends DistributionList {
+    // binomial-sum-above-list n ks p
+
+    private final DistributionCache cache;
+
+    public BinomialComplementedList(DistributionCache cache) {
+      super(3, 1);
+      this.cache = cache;
+    }
+
+    @Override
+    double value(double x, double[] params) throws ExtensionException {
+      return Distributions.getBinomialComplemented((int) params[0], (int) x,
+              params[1], cache);
+    }
+  }
 }
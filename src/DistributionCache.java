@@ -0,0 +1,234 @@
+/*
+ * Holds the values and binomial tables that Distributions memoizes for one
+ * NetLogo workspace.  Like the TblRegistry and the Precision, it belongs
+ * to the workspace's own StatsExtension and is handed to the primitives
+ * that use it, and through the registry to the tables, so that the cache
+ * size, the hit counts and the cached values of one model are not shared
+ * with, or locked against, other models running in the same JVM, e.g., in
+ * parallel BehaviorSpace runs.
+ *
+ * The Student-t inverses and the p-values of t and F statistics, which
+ * colt finds by iterating its incomplete beta and gamma routines, are kept
+ * for the capacity most recently used arguments.  Models tend to ask for
+ * the same few again and again, e.g., the t for 95% confidence with a
+ * fixed window, or the p-values for a regression whose statistics haven't
+ * changed since the last tick.
+ *
+ * Once a model asks for them, with use-binomial-tables?, the binomial
+ * functions are answered from a table of the whole distribution for n
+ * trials with probability p, which pays when a model asks about many k for
+ * one (n, p).  Each table costs O(n) to build, and the tables are kept,
+ * most recently used first, to at most maxBinomialEntries entries in all.
+ * The table agrees with colt's direct evaluation only to within its own
+ * rounding, so whether a query is answered from a table depends on the
+ * setting and on n alone, never on which queries came before.  A table
+ * that has been dropped is simply built again, with the same values.
+ */
+package org.nlogo.extensions.stats;
+
+public class DistributionCache {
+
+  static final int defaultCapacity = 1024;
+  static final int maxBinomialEntries = 1 << 17;
+  private int capacity = defaultCapacity;
+  private long hits = 0;
+  private long misses = 0;
+  private boolean useBinomialTables = false;
+  private int binomialEntries = 0;
+  private final java.util.LinkedHashMap<Key, Double> values =
+          new java.util.LinkedHashMap<Key, Double>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    java.util.Map.Entry<Key, Double> eldest) {
+              return size() > capacity;
+            }
+          };
+  private final java.util.LinkedHashMap<Key, BinomialTable>
+          binomialTables =
+          new java.util.LinkedHashMap<Key, BinomialTable>(16, 0.75f, true);
+
+  /* ---------------------------------------------------------------------- */
+  // This method sets the number of values kept in the cache, clearing the
+  // cache and its counts.  A size of zero turns the cache off.
+  public synchronized void setSize(int n) {
+    capacity = n;
+    values.clear();
+    hits = 0;
+    misses = 0;
+    binomialTables.clear();
+    binomialEntries = 0;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  // This method turns the binomial tables on or off.  Turning them off
+  // drops the tables kept so far.
+  public synchronized void useBinomialTables(boolean use) {
+    useBinomialTables = use;
+    if (!use) {
+      binomialTables.clear();
+      binomialEntries = 0;
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  // This method returns the number of cache hits and misses since the cache
+  // was last cleared, and the number of values and binomial tables in it.
+  public synchronized double[] getStats() {
+    return new double[]{hits, misses, values.size() + binomialTables.size()};
+  }
+
+  /* ---------------------------------------------------------------------- */
+  synchronized Double lookup(Key key) {
+    // Returns the cached value for key, or null if there is none.
+    if (capacity == 0) {
+      return null;
+    }
+    Double value = values.get(key);
+    if (value != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return value;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  synchronized double store(Key key, double value) {
+    // Caches value under key, and returns it.
+    if (capacity > 0) {
+      values.put(key, value);
+    }
+    return value;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  BinomialTable getBinomialTable(int n, double p) {
+    // Returns the table for (n, p), building it if need be, if the tables
+    // are in use and the table would fit.  Otherwise returns null, and the
+    // query is answered directly.
+    if (n + 1 > maxBinomialEntries) {
+      return null;
+    }
+    Key key = new Key(Key.BINOMIAL, p, n, 0);
+    synchronized (this) {
+      if (!useBinomialTables) {
+        return null;
+      }
+      BinomialTable table = binomialTables.get(key);
+      if (table != null) {
+        hits++;
+        return table;
+      }
+      misses++;
+    }
+    // The table is built outside the lock.  Should two threads build the
+    // same one, the later simply replaces the earlier, which has the same
+    // values.
+    BinomialTable table = new BinomialTable(n, p);
+    synchronized (this) {
+      if (useBinomialTables) {
+        BinomialTable old = binomialTables.put(key, table);
+        binomialEntries += n + 1 - ((old == null) ? 0 : old.pmf.length);
+        java.util.Iterator<BinomialTable> eldest =
+                binomialTables.values().iterator();
+        while (binomialEntries > maxBinomialEntries) {
+          binomialEntries -= eldest.next().pmf.length;
+          eldest.remove();
+        }
+      }
+    }
+    return table;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  static final class BinomialTable {
+    // The binomial distribution for n trials with probability p: pmf[k] is
+    // the probability of exactly k successes, lower[k] that of k or fewer
+    // and upper[k] that of more than k.  The probabilities are built out
+    // from the mode, where the ratios of successive terms are applied, and
+    // then normalized by their total, so that neither the binomial
+    // coefficients nor the powers of p can overflow.  The lower sums are
+    // taken from the left and the upper sums from the right, so that each
+    // adds the smallest terms first.  Each term carries the rounding of
+    // the ratios between it and the mode, so the relative error grows to
+    // about n times the machine epsilon (some 5e-11 at n = 20000).  Terms
+    // and sums too small to be normal doubles lose precision and then
+    // underflow to zero; the sums are then left to colt, whose incomplete
+    // beta function keeps what precision is left.
+
+    final double[] pmf;
+    final double[] lower;
+    final double[] upper;
+
+    BinomialTable(int n, double p) {
+      pmf = new double[n + 1];
+      lower = new double[n + 1];
+      upper = new double[n + 1];
+      int mode = Math.min((int) ((n + 1) * p), n);
+      double odds = p / (1.0 - p);
+      pmf[mode] = 1.0;
+      for (int k = mode; k < n; k++) {
+        pmf[k + 1] = pmf[k] * ((n - k) * odds / (k + 1));
+      }
+      for (int k = mode; k > 0; k--) {
+        pmf[k - 1] = pmf[k] * (k / ((n - k + 1) * odds));
+      }
+      double total = 0.0;
+      for (int k = 0; k <= n; k++) {
+        total += pmf[k];
+      }
+      double sum = 0.0;
+      for (int k = 0; k <= n; k++) {
+        pmf[k] /= total;
+        sum += pmf[k];
+        lower[k] = sum;
+      }
+      sum = 0.0;
+      for (int k = n; k >= 0; k--) {
+        upper[k] = sum;
+        sum += pmf[k];
+      }
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  static final class Key {
+    // The key of a cached value: the function, its real argument and up to
+    // two degrees of freedom.
+
+    static final int STUDENT_INVERSE = 0;
+    static final int TSTAT_P = 1;
+    static final int FSTAT_P = 2;
+    static final int BINOMIAL = 3;
+    private final int function;
+    private final double x;
+    private final int df1;
+    private final int df2;
+
+    Key(int function, double x, int df1, int df2) {
+      this.function = function;
+      this.x = x;
+      this.df1 = df1;
+      this.df2 = df2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key k = (Key) o;
+      return function == k.function && df1 == k.df1 && df2 == k.df2
+              && Double.doubleToLongBits(x) == Double.doubleToLongBits(k.x);
+    }
+
+    @Override
+    public int hashCode() {
+      long bits = Double.doubleToLongBits(x);
+      int h = (int) (bits ^ (bits >>> 32));
+      h = 31 * h + function;
+      h = 31 * h + df1;
+      return 31 * h + df2;
+    }
+  }
+}
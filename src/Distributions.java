@@ -18,21 +18,41 @@ package org.nlogo.extensions.stats;
 import cern.jet.stat.Gamma;
 import cern.jet.stat.Probability;
 import cern.jet.math.Arithmetic;
+import cern.jet.random.engine.RandomEngine;
 
 import org.nlogo.api.*;
 
 public class Distributions {
 
+  private static final double SQRT_2PI = Math.sqrt(2 * Math.PI);
+
+  // The Student-t inverses, the p-values of t and F statistics and the
+  // binomial functions may be memoized in a workspace's DistributionCache,
+  // which is passed to them.  Without one, they are found directly.
+
   /* ---------------------------------------------------------------------- */
   public static double pValueForFstat(double fstat, int dfn, int dfd)
           throws ExtensionException {
+    return pValueForFstat(fstat, dfn, dfd, null);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static double pValueForFstat(double fstat, int dfn, int dfd,
+          DistributionCache cache) throws ExtensionException {
     // Returns the P value of F statistic fstat with numerator degrees
     // of freedom dfn and denominator degress of freedom dfd.
     // Uses the incomplete getBeta function.
 
+    DistributionCache.Key key = new DistributionCache.Key(
+            DistributionCache.Key.FSTAT_P, fstat, dfn, dfd);
+    Double cached = lookup(cache, key);
+    if (cached != null) {
+      return cached;
+    }
     double x = dfd / (dfd + dfn * fstat);
     try {
-      return Gamma.incompleteBeta(dfd / 2.0, dfn / 2.0, x);
+      return store(cache, key,
+              Gamma.incompleteBeta(dfd / 2.0, dfn / 2.0, x));
     } catch (IllegalArgumentException | ArithmeticException ex) {
       throw new ExtensionException("colt .incompleteBeta reports: " + ex);
     }
@@ -41,14 +61,26 @@ public class Distributions {
   /* ---------------------------------------------------------------------- */
   public static double pValueForTstat(double tstat, int df)
           throws ExtensionException {
+    return pValueForTstat(tstat, df, null);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static double pValueForTstat(double tstat, int df,
+          DistributionCache cache) throws ExtensionException {
     // Returns the P value of the T statistic tstat with df degrees of
     // freedom. This is a two-tailed test so we just double the right
     // tail which is given by studentT of -|tstat|.
 
     double x = Math.abs(tstat);
+    DistributionCache.Key key = new DistributionCache.Key(
+            DistributionCache.Key.TSTAT_P, x, df, 0);
+    Double cached = lookup(cache, key);
+    if (cached != null) {
+      return cached;
+    }
     try {
       double p = Probability.studentT((double) df, -x);
-      return 2.0 * p;
+      return store(cache, key, 2.0 * p);
     } catch (IllegalArgumentException | ArithmeticException ex) {
       throw new ExtensionException("colt .studentT reports: " + ex);
     }
@@ -69,8 +101,21 @@ public class Distributions {
   /* ---------------------------------------------------------------------- */
   public static double getNormalArea(double x, double mean, double sd)
           throws ExtensionException {
+    return getNormalArea(x, mean, sd, false);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static double getNormalArea(double x, double mean, double sd,
+          boolean fast) throws ExtensionException {
     // Returns the area to the left of x in the normal distribution
-    // with the given mean and standard deviation.
+    // with the given mean and standard deviation.  If fast is true,
+    // FastNormal's approximation, whose error is documented there, is used
+    // in place of colt's routine.
+    if (fast) {
+      // colt's normal takes its second parameter to be the variance, and 
+      // the fast approximation does the same, so that the two agree.
+      return FastNormal.cdf((x - mean) / Math.sqrt(sd));
+    }
     try {
       return Probability.normal(mean, sd, x);
     } catch (IllegalArgumentException | ArithmeticException ex) {
@@ -81,6 +126,12 @@ public class Distributions {
   /* ---------------------------------------------------------------------- */
   public static double getStudentTInverse(double area, int df)
           throws ExtensionException {
+    return getStudentTInverse(area, df, null);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static double getStudentTInverse(double area, int df,
+          DistributionCache cache) throws ExtensionException {
     // Returns the value, t, for which the area under the Student-t 
     // probability density function (integrated from minus infinity to t) 
     // is equal to area.
@@ -88,10 +139,21 @@ public class Distributions {
       throw new ExtensionException("The area parameter in student-inverse "
               + " must be greater than 0.0 and less than 1.0.");
     }
-    double a = 2.0 * (1.0 - area);
-
+    DistributionCache.Key key = new DistributionCache.Key(
+            DistributionCache.Key.STUDENT_INVERSE, area, df, 0);
+    Double cached = lookup(cache, key);
+    if (cached != null) {
+      return cached;
+    }
+    // colt's studentTInverse takes the area in both tails, which can be at
+    // most 1.0, so areas below one half are found by symmetry.
     try {
-      return Probability.studentTInverse(a, df);
+      if (area >= 0.5) {
+        double a = 2.0 * (1.0 - area);
+        return store(cache, key, Probability.studentTInverse(a, df));
+      }
+      return store(cache, key,
+              -Probability.studentTInverse(2.0 * area, df));
     } catch (IllegalArgumentException | ArithmeticException ex) {
       throw new ExtensionException("colt .studentTInverse reports: " + ex);
     }
@@ -100,16 +162,26 @@ public class Distributions {
   /* ---------------------------------------------------------------------- */
   public static double getNormalInverse(double area, double mean, double sd)
           throws ExtensionException {
+    return getNormalInverse(area, mean, sd, false);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static double getNormalInverse(double area, double mean, double sd,
+          boolean fast) throws ExtensionException {
     // Returns the x in the normal distribution with the given mean and
     // standard deviation, to the left of which lies the given area.
     // normal.Inverse returns the value in terms of standard deviations
     // from the mean, so we need to adjust it for the given mean and 
     // standard deviation. Note that the area must be strictly greater than
-    // zero and strictly less than 1.0.
+    // zero and strictly less than 1.0.  If fast is true, FastNormal's 
+    // approximation is used in place of colt's routine.
     if (area <= 0.0 || area >= 1.0) {
       throw new ExtensionException("The area parameter in normal-inverse "
       + " must be greater than 0.0 and less than 1.0.");
     }
+    if (fast) {
+      return (FastNormal.inverse(area) + mean) * sd;
+    }
     try {
       double x = Probability.normalInverse(area);
       return (x + mean) * sd;
@@ -128,6 +200,52 @@ public class Distributions {
     return c * Math.exp(-b);
   }
 
+  /* ---------------------------------------------------------------------- */
+  public static double getLogNormalArea(double x, double m, double s)
+          throws ExtensionException {
+    return getLogNormalArea(x, m, s, false);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static double getLogNormalArea(double x, double m, double s,
+          boolean fast) throws ExtensionException {
+    // Returns the area to the left of x in the LogNormal distribution
+    // with the given location and size parameters, with the precision of
+    // the normal distribution function set by fast.
+    double y = (Math.log(x) - m) / s;
+    return getNormalArea(y, 0.0, 1.0, fast);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static double getLogNormalDensity(double x, double m, double s) {
+    // Returns the probability of x in the LogNormal distribution with the
+    // given location and size parameters.
+    double y = (Math.log(x) - m) / s;
+    return Math.exp(-y * y / 2) / (x * SQRT_2PI * s);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static double getLogNormalInverse(double area, double m, double s)
+          throws ExtensionException {
+    return getLogNormalInverse(area, m, s, false);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static double getLogNormalInverse(double area, double m, double s,
+          boolean fast) throws ExtensionException {
+    // Returns the x in the LogNormal distribution with the given location
+    // and size, to the left of which lies the given area, with the 
+    // precision of the normal inverse set by fast.
+    if (area <= 0.0) {
+      return 0.0;
+    }
+    if (area >= 1.0) {
+      throw new ExtensionException("The area parameter in lognormal-inverse "
+              + " must be less than 1.0.");
+    }
+    return Math.exp(m + getNormalInverse(area, 0, 1, fast) * s);
+  }
+
   /* ---------------------------------------------------------------------- */
   public static double getBinomialCoeff(int n, int k) throws ExtensionException {
     // Returns "n choose k" as a double. Note the "integerization" of
@@ -139,12 +257,46 @@ public class Distributions {
     }
   }
 
+  /* ---------------------------------------------------------------------- */
+  public static double getBinomialProbability(int n, int k, double p)
+          throws ExtensionException {
+    return getBinomialProbability(n, k, p, null);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static double getBinomialProbability(int n, int k, double p,
+          DistributionCache cache) throws ExtensionException {
+    // Returns the binomial probibility of exactly k successes in n trials,
+    // each with probability p.
+    if (k >= 0 && k <= n && p > 0.0 && p < 1.0) {
+      DistributionCache.BinomialTable table = (cache == null) ? null
+              : cache.getBinomialTable(n, p);
+      if (table != null) {
+        return table.pmf[k];
+      }
+    }
+    return getBinomialCoeff(n, k) * Math.pow(p, k) * Math.pow((1.0 - p), (n - k));
+  }
+
   /* ---------------------------------------------------------------------- */
   public static double getBinomialSum(int n, int k, double p)
           throws ExtensionException {
+    return getBinomialSum(n, k, p, null);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static double getBinomialSum(int n, int k, double p,
+          DistributionCache cache) throws ExtensionException {
     // Returns the sum of the terms 0 through k of the Binomial 
     // probability density, where n is the number of trials and p is 
     // the probability of success in the range 0 to 1.
+    if (k >= 0 && k < n && p > 0.0 && p < 1.0) {
+      DistributionCache.BinomialTable table = (cache == null) ? null
+              : cache.getBinomialTable(n, p);
+      if (table != null && table.lower[k] >= Double.MIN_NORMAL) {
+        return table.lower[k];
+      }
+    }
     try {
       return Probability.binomial(k, n, p);
     } catch (IllegalArgumentException ex) {
@@ -157,9 +309,22 @@ public class Distributions {
   /* ---------------------------------------------------------------------- */
   public static double getBinomialComplemented(int n, int k, double p)
           throws ExtensionException {
+    return getBinomialComplemented(n, k, p, null);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static double getBinomialComplemented(int n, int k, double p,
+          DistributionCache cache) throws ExtensionException {
     // Returns the sum of the terms k+1 through n of the Binomial 
     // probability density, where n is the number of trials and P is
     // the probability of success in the range 0 to 1.
+    if (k >= 0 && k < n && p > 0.0 && p < 1.0) {
+      DistributionCache.BinomialTable table = (cache == null) ? null
+              : cache.getBinomialTable(n, p);
+      if (table != null && table.upper[k] >= Double.MIN_NORMAL) {
+        return table.upper[k];
+      }
+    }
     try {
       return Probability.binomialComplemented(k, n, p);
     } catch (IllegalArgumentException | ArithmeticException ex) {
@@ -258,4 +423,134 @@ public class Distributions {
   }
 
   /* ---------------------------------------------------------------------- */
+  // The samplers fill the given array with random variates drawn, by way of
+  // colt's generators, from engine.
+
+  /* ---------------------------------------------------------------------- */
+  public static void sampleNormal(double[] sample, double mean, double sd,
+          RandomEngine engine) throws ExtensionException {
+    // Draws from the normal distribution with the given mean and 
+    // standard deviation.
+    if (sd < 0.0) {
+      throw new ExtensionException("The standard deviation must be"
+              + " greater or equal to zero.");
+    }
+    cern.jet.random.Normal dist = new cern.jet.random.Normal(mean, sd, engine);
+    for (int i = 0; i < sample.length; i++) {
+      sample[i] = dist.nextDouble();
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static void sampleLogNormal(double[] sample, double m, double s,
+          RandomEngine engine) throws ExtensionException {
+    // Draws from the LogNormal distribution with the given location and 
+    // size parameters, as exp of draws from the normal distribution with
+    // mean m and standard deviation s.
+    if (s < 0.0) {
+      throw new ExtensionException("The size parameter must be"
+              + " greater or equal to zero.");
+    }
+    sampleNormal(sample, m, s, engine);
+    for (int i = 0; i < sample.length; i++) {
+      sample[i] = Math.exp(sample[i]);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static void sampleStudentT(double[] sample, double df,
+          RandomEngine engine) throws ExtensionException {
+    // Draws from the Student-t distribution with df degrees of freedom.
+    if (df <= 0.0) {
+      throw new ExtensionException("The degrees of freedom must be"
+              + " greater than zero.");
+    }
+    try {
+      cern.jet.random.StudentT dist = new cern.jet.random.StudentT(df, engine);
+      for (int i = 0; i < sample.length; i++) {
+        sample[i] = dist.nextDouble();
+      }
+    } catch (IllegalArgumentException | ArithmeticException ex) {
+      throw new ExtensionException("colt .StudentT reports: " + ex);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static void sampleChiSquare(double[] sample, double df,
+          RandomEngine engine) throws ExtensionException {
+    // Draws from the Chi square distribution with df degrees of freedom,
+    // which colt requires to be at least one.
+    if (df < 1.0) {
+      throw new ExtensionException("The degrees of freedom must be"
+              + " at least 1.");
+    }
+    try {
+      cern.jet.random.ChiSquare dist =
+              new cern.jet.random.ChiSquare(df, engine);
+      for (int i = 0; i < sample.length; i++) {
+        sample[i] = dist.nextDouble();
+      }
+    } catch (IllegalArgumentException | ArithmeticException ex) {
+      throw new ExtensionException("colt .ChiSquare reports: " + ex);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static void sampleBinomial(double[] sample, int n, double p,
+          RandomEngine engine) throws ExtensionException {
+    // Draws the number of successes in n trials, each with probability p.
+    // colt rejects the degenerate cases, in which every draw is the same.
+    if (n < 0 || p < 0.0 || p > 1.0) {
+      throw new ExtensionException("The number of trials must be at least"
+              + " zero and the probability between 0.0 and 1.0.");
+    }
+    if (n == 0 || p == 0.0 || p == 1.0) {
+      java.util.Arrays.fill(sample, (p == 1.0) ? n : 0);
+      return;
+    }
+    try {
+      cern.jet.random.Binomial dist =
+              new cern.jet.random.Binomial(n, p, engine);
+      for (int i = 0; i < sample.length; i++) {
+        sample[i] = dist.nextInt();
+      }
+    } catch (IllegalArgumentException | ArithmeticException ex) {
+      throw new ExtensionException("colt .Binomial reports: " + ex);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static void sampleGamma(double[] sample, double alpha,
+          double lambda, RandomEngine engine) throws ExtensionException {
+    // Draws from the gamma distribution with shape alpha and rate lambda,
+    // whose mean is alpha / lambda, as for NetLogo's random-gamma.
+    if (alpha <= 0.0 || lambda <= 0.0) {
+      throw new ExtensionException("The gamma parameters must be"
+              + " greater than zero.");
+    }
+    try {
+      cern.jet.random.Gamma dist =
+              new cern.jet.random.Gamma(alpha, lambda, engine);
+      for (int i = 0; i < sample.length; i++) {
+        sample[i] = dist.nextDouble();
+      }
+    } catch (IllegalArgumentException | ArithmeticException ex) {
+      throw new ExtensionException("colt .Gamma reports: " + ex);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static Double lookup(DistributionCache cache,
+          DistributionCache.Key key) {
+    // Returns the value cached for key, or null if there is none or no
+    // cache.
+    return (cache == null) ? null : cache.lookup(key);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static double store(DistributionCache cache,
+          DistributionCache.Key key, double value) {
+    // Caches value under key, if there is a cache, and returns it.
+    return (cache == null) ? value : cache.store(key, value);
+  }
 }
@@ -65,53 +65,65 @@ public class ExtnUtils {
 
     public static double[][] convertNestedLogoListToArray(LogoList nestedLogoList)
         throws ExtensionException {
+        // Converts a nested LogoList, a list of rows, to a 2D array of rows.
+        return convertNestedLogoList(nestedLogoList, false);
+    }
+
+    public static double[][] convertNestedLogoListToColumns(LogoList nestedLogoList)
+        throws ExtensionException {
+        // Converts a nested LogoList, a list of rows, to a 2D array of 
+        // columns, the form in which a LogoStatsTbl stores its data, so 
+        // that a new table can take the array over without copying it.
+        return convertNestedLogoList(nestedLogoList, true);
+    }
+
+    private static double[][] convertNestedLogoList(LogoList nestedLogoList,
+        boolean byColumn) throws ExtensionException {
+        // Checks and converts the rows in a single pass, sizing the array 
+        // from the first row.  All the rows must be lists of the same 
+        // length.  Any entries that are not numbers are skipped, and the 
+        // row is padded on the right with zeros.
         int numRows = nestedLogoList.size();
         if (numRows == 0) {
             throw new ExtensionException("input list was empty");
         }
+        double[][] array = null;
         int numCols = -1;
-        // find out the maximum column size of any of the rows,
-        // in case we have a "ragged" right edge, where some rows
-        // have more columns than others.
+        int row = 0;
         for (Object obj : nestedLogoList.toJava()) {
-            if (obj instanceof LogoList) {
-                LogoList rowList = (LogoList) obj;
-                if (numCols == -1) {
-                    numCols = rowList.size();
-                } else if (numCols != rowList.size()) {
-                    throw new ExtensionException("To convert a nested list "
-                        + "into a matrix, all nested lists must be the "
-                        + "same length -- e.g. [[1 2 3 4] [1 2 3]] is "
-                        + "invalid, because row 1 has one more entry.");
-                }
-            } else {
+            if (!(obj instanceof LogoList)) {
                 throw new ExtensionException("To convert a nested list into "
                     + "a matrix, there must be exactly two levels of "
                     + "nesting -- e.g. [[1 2 3] [4 5 6]] creates a good "
                     + "2x3 matrix.");
             }
-        }
-        if (numCols == 0) {
-            throw new ExtensionException("input list contained only empty lists");
-        }
-        double[][] array = new double[numRows][numCols];
-        int row = 0;
-        for (Object obj : nestedLogoList.toJava()) {
-            int col = 0;
             LogoList rowList = (LogoList) obj;
+            if (numCols == -1) {
+                numCols = rowList.size();
+                array = (byColumn) ? new double[numCols][numRows]
+                    : new double[numRows][numCols];
+            } else if (numCols != rowList.size()) {
+                throw new ExtensionException("To convert a nested list "
+                    + "into a matrix, all nested lists must be the "
+                    + "same length -- e.g. [[1 2 3 4] [1 2 3]] is "
+                    + "invalid, because row 1 has one more entry.");
+            }
+            int col = 0;
             for (Object obj2 : rowList.toJava()) {
                 if (obj2 instanceof Number) {
-                    array[row][col] = ((Number) obj2).doubleValue();
+                    if (byColumn) {
+                        array[col][row] = ((Number) obj2).doubleValue();
+                    } else {
+                        array[row][col] = ((Number) obj2).doubleValue();
+                    }
                     col++;
                 }
             }
-            // pad with zeros if we have a "ragged" right edge
-            for (; col < numCols; col++) {
-                array[row][col] = 0.0;
-            }
             row++;
         }
-
+        if (numCols == 0) {
+            throw new ExtensionException("input list contained only empty lists");
+        }
         return array;
     }
 
@@ -129,6 +141,24 @@ public class ExtnUtils {
         return array;
     }
 
+    public static double[] convertLogoListToVector(LogoList numberList)
+        throws ExtensionException {
+        // Converts a simple LogoList of numbers to a double array, checking
+        // that all the elements of the list are in fact numbers.
+        int n = numberList.size();
+        double[] vector = new double[n];
+        for (int i = 0; i < n; i++) {
+            Object obj = numberList.get(i);
+            if (!(obj instanceof Double)) {
+                throw new ExtensionException("Expected a list of numbers."
+                    + " Found " + org.nlogo.api.Dump.logoObject(obj)
+                    + " instead");
+            }
+            vector[i] = (Double) obj;
+        }
+        return vector;
+    }
+
     public static String[] convertLogoListOfStringsToStringArray(LogoList stringList)
         throws ExtensionException {
         // Converts a LogoList of strings to a String array. This could
@@ -172,13 +202,37 @@ public class ExtnUtils {
     }
 
     public static LogoList convertVectorToSimpleLogoList(double[] dArray) {
+        return convertVectorToSimpleLogoList(dArray, 0, dArray.length);
+    }
+
+    public static LogoList convertVectorToSimpleLogoList(double[] dArray,
+        int offset, int length) {
+        // Converts dArray[offset] through dArray[offset + length - 1] to a
+        // simple LogoList, e.g., straight from a column of a LogoStatsTbl.
         LogoListBuilder lst = new LogoListBuilder();
-        for (int i = 0; i < dArray.length; i++) {
+        for (int i = offset; i < offset + length; i++) {
             lst.add(dArray[i]);
         }
         return lst.toLogoList();
     }
 
+    static LogoList convertColumnsToNestedLogoList(LogoStatsTbl.ColumnView[] cols,
+        int numRows) {
+        // Converts the columns of a LogoStatsTbl, all of which must hold 
+        // numRows observations, to a nested LogoList of rows, reading the
+        // table's storage directly rather than first copying it into an 
+        // array of rows.
+        LogoListBuilder lst = new LogoListBuilder();
+        for (int i = 0; i < numRows; i++) {
+            LogoListBuilder rowLst = new LogoListBuilder();
+            for (LogoStatsTbl.ColumnView col : cols) {
+                rowLst.add(col.values[col.offset + i]);
+            }
+            lst.add(rowLst.toLogoList());
+        }
+        return lst.toLogoList();
+    }
+
     public static LogoList convertStringArrayToLogoListOfStrings(String[] stringArray) {
         LogoListBuilder lst = new LogoListBuilder();
         for (String s : stringArray) {
@@ -228,4 +282,51 @@ public class ExtnUtils {
         }
         return varNumber;
     }
+
+    /* ---------------------------------------------------------------------- */
+    public static int[] getVarNumbersFromList(LogoStatsTbl tbl, LogoList varList,
+            String primName) throws ExtensionException {
+        // Converts a list of variable numbers or names to an array of
+        // variable numbers, checking that each is in the table and that 
+        // none is repeated.  primName is used in the error messages.
+        int v = varList.size();
+        int nv = tbl.getNVars();
+        if (v == 0) {
+            throw new ExtensionException("The " + primName
+                    + " variable list is empty.");
+        }
+        if (v > nv) {
+            throw new ExtensionException(
+                    "Too many variables in the " + primName + " list.");
+        }
+        int[] vars = new int[v];
+        if (varList.get(0) instanceof Number) {
+            // We assume it is a list of numbers that need to be converted
+            // to ints.
+            for (int j = 0; j < v; j++) {
+                vars[j] = (int) Math.round(((Number) varList.get(j)).doubleValue());
+                if (vars[j] < 0 || vars[j] >= nv) {
+                    throw new ExtensionException(
+                            "Variable number out of range in the "
+                            + primName + " list.");
+                }
+            }
+        } else {
+            // We assume its a list of names.
+            for (int j = 0; j < v; j++) {
+                String name = varList.get(j).toString();
+                vars[j] = tbl.getNameIndex(name);
+                if (vars[j] == -1) {
+                    throw new ExtensionException(
+                            "No variable with the name " + name + ".");
+                }
+            }
+        }
+        // check vars for duplicates.
+        if (duplicates(vars, nv)) {
+            throw new ExtensionException("Duplicate variables in the "
+                    + primName + " variable list.");
+        }
+        return vars;
+    }
 }
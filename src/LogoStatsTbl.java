@@ -5,32 +5,69 @@
 package org.nlogo.extensions.stats;
 
 import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
 import org.nlogo.api.*;
 
+import cern.colt.list.DoubleArrayList;
+import cern.colt.Sorting;
+import cern.jet.stat.Descriptive;
+
 public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
   // NetLogo data types defined in extensions must implement
   // the ExtensionObject interface, and thus the methods that come 
   // immediately after the data structure definition and consructors.
 
-  private static int nrowsIncrement = 10;
+  // The data table is held by column: data[j] holds the observations on
+  // variable j, with the oldest in data[j][start] and the rest following
+  // contiguously, so that any column can be scanned (or handed out as a
+  // ColumnView) without copying.  nrows is the length of each column array.
+  // When an ordinary table fills, the capacity is doubled so that adding 
+  // an observation costs amortized constant time rather than a copy of the
+  // whole table every few rows.  A window table (window > 0) never grows.
+  // Its columns are 2 * window long and each observation is written both
+  // at its slot, p, and at p + window, so that the most recent window of
+  // observations is always contiguous even as each new observation 
+  // overwrites the oldest one in place.
+  private static int nrowsInitial = 10;
   private int nvars = 0;
   private int nrows = 0;
   private int nobs = 0;
+  private int start = 0;
+  private int window = 0;
+  private int nrowsReserved = 0;
   private int useObs = 0;
-  private boolean dataChanged = true;
   private String[] names = null;
-  private Jama.Matrix data = null;
+  private double[][] data = null;
   private Jama.Matrix covar = null;
   private Jama.Matrix correl = null;
-  private Jama.Matrix means = null;
-  private Jama.Matrix stddevs = null;
   private boolean useBessel = true;
-  private boolean changedBessel = false;
+  // The variance-covariance and correlation matrices are each computed
+  // only when asked for, and each is stamped with the version of the 
+  // observations in use (and, for the covariances, the Bessel setting)
+  // it was computed from, so that it is reused until that changes.  The
+  // version of the observations in use is advanced whenever they change.
+  private long usedVersion = 0;
+  private long covarVersion = -1;
+  private boolean covarBessel = true;
+  private long correlVersion = -1;
   private int[] rVars = null;
   private Jama.Matrix rCoeffs = null;
   private Jama.Matrix rSEBeta = null;
   private Jama.Matrix rTBeta = null;
   private Jama.Matrix rTBetaP = null;
+  // The standard errors, t-statistics and p-values of the coefficients
+  // are only found when they are asked for.  Both ways of estimating a
+  // regression leave behind an upper triangular R with R'R = X'X (or, 
+  // from the moments, with R'R = Cxx, along with the means of the 
+  // independent variables and the number of observations), from which
+  // (X'X)^-1 follows without a second decomposition.  The coefficients,
+  // s^2 and degrees of freedom they go with are kept too.
+  private Jama.Matrix rFactor = null;
+  private double[] rMeanX = null;
+  private int rN = 0;
+  private double[] rSCoeffs = null;
+  private double rS2 = 0.0;
+  private int rSDFE = 0;
   private double rSST = 0.0;
   private double rSSR = 0.0;
   private double rSSE = 0.0;
@@ -43,39 +80,109 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
   private int rDFR = 0;
   private int rDFE = 0;
   private Jama.Matrix fCoeffs = null;
+  // The running means and sums of squared deviations (and, once the 
+  // correlations or covariances have been asked for, co-moments) of the
+  // observations in use.  Once built, they are kept up to date as observations are 
+  // added or drop out of use.  They are discarded (and rebuilt when next
+  // needed) when the observations in use change in any other way, or 
+  // when so many have dropped out that rounding errors may have built up.
+  private RunningMoments moments = null;
+  private boolean keepComoments = false;
+  private int nRemoved = 0;
+  // The running moments of a list of variables, keyed on the list, are
+  // kept in the same way when the correlations or covariances of just 
+  // those variables are asked for, or, when recursive regression is on,
+  // when they are the variables of a regression.  The correlations and 
+  // covariances then cost O(k^2), and the regression can be re-estimated
+  // in O(k^3) time, however many observations are in use.  Only the 
+  // moments of the most recently used lists are kept.
+  private static final int maxSubMoments = 8;
+  private boolean recursiveRegression = false;
+  private final java.util.Map<String, RunningMoments> subMoments =
+          new java.util.LinkedHashMap<String, RunningMoments>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    java.util.Map.Entry<String, RunningMoments> eldest) {
+              return size() > maxSubMoments;
+            }
+          };
+  // Once a variable has been forecast, the running statistics for its time
+  // trends are kept in the same way, so that later forecasts cost O(1).
+  private final java.util.Map<Integer, RunningTrend> fTrends =
+          new java.util.HashMap<>();
+  // The medians, quantiles and percentiles are found either exactly, by
+  // sorting the observations, or approximately from a quantile sketch of
+  // each variable, or exactly from an order-statistic tree of each 
+  // variable.  The sketches and trees cover all of the observations in 
+  // the table and are kept up to date as observations are added.  The 
+  // trees also track the observations that leave the table, so that, in
+  // a window table, they give exact rolling medians and quantiles.  A 
+  // sketch cannot forget an observation, though, so the sketches are 
+  // discarded (and rebuilt when next needed) whenever one leaves.
+  static final int QUANTILE_EXACT = 0;
+  static final int QUANTILE_SKETCH = 1;
+  static final int QUANTILE_INDEXED = 2;
+  static final int defaultSketchAccuracy = 200;
+  private int quantileMethod = QUANTILE_EXACT;
+  private int sketchAccuracy = defaultSketchAccuracy;
+  private QuantileSketch[] sketches = null;
+  private OrderStatisticTree[] orderTrees = null;
+  // The exact order statistics are found from sorted copies of the 
+  // columns.  Each sorted copy is kept, stamped with the version of the 
+  // table it was taken from, so that the medians, quantiles and 
+  // percentiles of a column can all be had from one sort until the table
+  // next changes.  The version is advanced by every change to the 
+  // observations in the table.  A sort only pays, though, if the column
+  // is asked about more than once, so the first query of a column at 
+  // each version is answered by selection, in O(n) time, instead.
+  private long version = 0;
+  private DoubleArrayList[] sortedCols = null;
+  private long[] sortedVersions = null;
+  private long[] selectedVersions = null;
+  // The exact order statistics of all of the variables at once are found
+  // a column at a time on CrossProducts' pool, once there are at least 
+  // this many observations in the table as a whole.
+  static final long minParallelOrderStats = 1L << 16;
   private final long id;
+  // The workspace's cache, through which the p-values are found.
+  private final DistributionCache cache;
 
   /* ====================================================================== */
-  // The set of constructors.  All register themselves with StatsExtenxion
-  // and receive an id in return.
+  // The set of constructors.  All register themselves with the registry of
+  // the workspace in which they are created and receive an id in return.
   // NOTE that NetBeans doesn't like 
-  //     this.id = StatsExtension.addLogoStatsTbl(this);
-  // as it passing "this" to addLogoStatsTbl before the constructor is complete
+  //     this.id = registry.add(this);
+  // as it passing "this" to add before the constructor is complete
   // is seen as bad form (a "leaky" constructor.  However, given what happens
-  // to the new table in addLogoStatsTbl, nothing, that is not a problem for 
+  // to the new table in add, nothing, that is not a problem for 
   // us and we have supressed the warning.
 
   // This is the main constructor.
   @SuppressWarnings("LeakingThisInConstructor")
-  LogoStatsTbl() {
-    this.id = StatsExtension.addLogoStatsTbl(this);
+  LogoStatsTbl(TblRegistry registry) {
+    this.cache = registry.getCache();
+    this.id = registry.add(this);
   }
 
-  // This constructor takes as its argument a set of data in 
-  // matrix format.
+  // This constructor takes as its argument a set of data stored by 
+  // column, one array of observations per variable, all of the same 
+  // length.  The table takes the arrays over rather than copying them.
   @SuppressWarnings("LeakingThisInConstructor")
-  LogoStatsTbl(Jama.Matrix matrixData) {
-    data = matrixData;
-    nvars = data.getColumnDimension();
-    nrows = data.getRowDimension();
-    nobs = nrows;
-    this.id = StatsExtension.addLogoStatsTbl(this);
+  LogoStatsTbl(TblRegistry registry, double[][] columns) {
+    nvars = columns.length;
+    nobs = columns[0].length;
+    nrows = nobs;
+    start = 0;
+    data = columns;
+    this.cache = registry.getCache();
+    this.id = registry.add(this);
   }
 
   // This constructor is used during importWorld.
   @SuppressWarnings("LeakingThisInConstructor")
-  LogoStatsTbl(long id) {
-    this.id = StatsExtension.addLogoStatsTbl(this, id);
+  LogoStatsTbl(TblRegistry registry, long id) {
+    this.cache = registry.getCache();
+    this.id = registry.add(this, id);
   }
 
   /* ====================================================================== */
@@ -100,8 +207,8 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
       return false;
     }
     LogoStatsTbl otherTbl = (LogoStatsTbl) o;
-    double[][] otherArray = otherTbl.data.getArray();
-    return java.util.Arrays.deepEquals(data.getArray(), otherArray);
+    double[][] otherArray = otherTbl.toArray();
+    return java.util.Arrays.deepEquals(toArray(), otherArray);
   }
 
   // The required dump method is not yet implemented.  I think it is only
@@ -210,70 +317,246 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
     return (data != null);
   }
 
+  // This method turns a new, empty table into a window table that holds
+  // only the most recent n observations.
+  public void useWindow(int n) {
+    window = n;
+  }
+
+  // This method reports the capacity of a window table, or zero if this
+  // is an ordinary table.
+  public int getWindow() {
+    return window;
+  }
+
   // This method creates an empty data table with ncols columns.
   public void createDataTable(int ncols) {
-    data = new Jama.Matrix(nrowsIncrement, ncols);
+    nrows = (window > 0) ? 2 * window : Math.max(nrowsInitial, nrowsReserved);
+    data = new double[ncols][nrows];
     nvars = ncols;
     nobs = 0;
-    dataChanged = true;
+    dropRunningStats();
+    sketches = null;
+    orderTrees = null;
+    sortedCols = null;
+    version++;
+    usedVersion++;
+  }
+
+  // This method makes sure that the data table has room for at least n
+  // observations, so that a model that knows the length of its run can
+  // avoid growing the table as it goes.  If the table has not yet been
+  // created, the request is remembered and used when it is.  A window 
+  // table already has its full capacity, so the request is ignored.
+  public void reserveRows(int n) {
+    if (window > 0) {
+      return;
+    }
+    nrowsReserved = Math.max(nrowsReserved, n);
+    if (data != null) {
+      ensureCapacity(n);
+    }
   }
 
   // This method adds rows to the data table from the 2D array rows.
   public void addRows(double[][] newRows) {
     int numNewRows = newRows.length;
-    int newRowLength = newRows[0].length;
         // check to see that a data table exists. If not, create it on the 
     // basis of the new rows.
     if (data == null) {
-      nvars = newRowLength;
-      nrows = Math.max(numNewRows, nrowsIncrement);
-      data = new Jama.Matrix(nrows, nvars);
+      nvars = newRows[0].length;
+      nrows = (window > 0) ? 2 * window
+              : Math.max(Math.max(numNewRows, nrowsInitial), nrowsReserved);
+      data = new double[nvars][nrows];
+      // Anything built before the table had data was sized for no 
+      // variables, so it is discarded.
+      dropRunningStats();
+      sketches = null;
+      orderTrees = null;
+      sortedCols = null;
+    }
+    // if there are not enough empty rows in the current table, 
+    // expand it.  A full window table instead drops its oldest row, whose
+    // slot is then reused for the new one.
+    if (window == 0) {
+      ensureCapacity(nobs + numNewRows);
+    }
+    RunningStat[] running = getRunningStats();
+    if (window == 0 && useObs == 0) {
+      // No observation drops out of use, so all of the new rows are 
+      // copied in first and the running statistics, sketches and order
+      // trees are then brought up to date in one batch each.
+      int first = start + nobs;
+      for (int i = 0; i < numNewRows; i++) {
+        double[] newRow = newRows[i];
+        for (int j = 0; j < nvars; j++) {
+          data[j][first + i] = newRow[j];
+        }
+      }
+      nobs += numNewRows;
+      for (RunningStat m : running) {
+        m.addRows(data, first, numNewRows);
+      }
+      if (sketches != null) {
+        for (int j = 0; j < nvars; j++) {
+          double[] col = data[j];
+          for (int i = first; i < first + numNewRows; i++) {
+            sketches[j].add(col[i]);
+          }
+        }
+      }
+      if (orderTrees != null) {
+        for (int j = 0; j < nvars; j++) {
+          double[] col = data[j];
+          for (int i = first; i < first + numNewRows; i++) {
+            orderTrees[j].insert(col[i]);
+          }
+        }
+      }
+      version++;
+      usedVersion++;
+      return;
+    }
+    // If the new rows alone will fill the observations in use, none of
+    // the old ones will remain in use, and it is cheaper to rebuild the
+    // running statistics when they are next needed than to add and 
+    // remove observations one at a time.
+    int limit = (window == 0) ? useObs
+            : ((useObs == 0) ? window : Math.min(useObs, window));
+    if (running.length > 0 && numNewRows >= limit) {
+      dropRunningStats();
+      running = new RunningStat[0];
+    }
+    // finally add the new rows, keeping the running statistics, if any, up 
+    // to date as we go.
+    double[] dropped = (running.length > 0) ? new double[nvars] : null;
+    for (double[] newRow : newRows) {
+      if (running.length > 0) {
+        int nobsUsed = (useObs == 0) ? nobs : Math.min(useObs, nobs);
+        if ((useObs != 0 && nobsUsed == useObs)
+                || (window > 0 && nobs == window)) {
+          // The oldest observation in use is about to drop out of use.
+          int ii = start + nobs - nobsUsed;
+          for (int j = 0; j < nvars; j++) {
+            dropped[j] = data[j][ii];
+          }
+          for (RunningStat m : running) {
+            m.remove(dropped);
+          }
+          nRemoved++;
+        }
+      }
+      if (window > 0) {
+        if (nobs == window) {
+          if (orderTrees != null) {
+            for (int j = 0; j < nvars; j++) {
+              orderTrees[j].remove(data[j][start]);
+            }
+          }
+          start = (start + 1) % window;
+          nobs--;
+          sketches = null;
+        }
+        int p = (start + nobs) % window;
+        for (int j = 0; j < nvars; j++) {
+          data[j][p] = newRow[j];
+          data[j][p + window] = newRow[j];
+        }
+      } else {
+        int p = start + nobs;
+        for (int j = 0; j < nvars; j++) {
+          data[j][p] = newRow[j];
+        }
+      }
+      nobs++;
+      for (RunningStat m : running) {
+        m.add(newRow);
+      }
+      if (sketches != null) {
+        for (int j = 0; j < nvars; j++) {
+          sketches[j].add(newRow[j]);
+        }
+      }
+      if (orderTrees != null) {
+        for (int j = 0; j < nvars; j++) {
+          orderTrees[j].insert(newRow[j]);
+        }
+      }
     }
-    nobs += numNewRows;
-        // if there are not enough empty rows in the current table, 
-    // expand it.
-    if (nobs > nrows) {
-      Jama.Matrix newdata = new Jama.Matrix(nrows
-              + Math.max(numNewRows, nrowsIncrement), nvars);
-      newdata.setMatrix(0, nrows - 1, 0, nvars - 1, data);
-      data = newdata;
-      nrows += Math.max(numNewRows, nrowsIncrement);
+    // Once as many observations have dropped out as are in use, the 
+    // running statistics are rebuilt from the data when next needed, so 
+    // that rounding errors from the removals cannot build up.
+    if (nRemoved > ((useObs == 0) ? nobs : Math.min(useObs, nobs))) {
+      dropRunningStats();
     }
-    // finally add the new rows.
-    int rowIndex = nobs - 1;
-    data.setMatrix(rowIndex, rowIndex + numNewRows - 1, 0,
-            newRowLength - 1, new Jama.Matrix(newRows));
 
-    dataChanged = true;
+    version++;
+    usedVersion++;
   }
 
   // Method to trim the number of rows in the data matrix to the last n rows.
+  // Nothing is copied; the start of the table simply moves forward and the
+  // space of the dropped rows is reclaimed when the table next needs room.
   public void trimRows(int n) {
+    if (n < ((useObs == 0) ? nobs : Math.min(useObs, nobs))) {
+      // Some data used in past stats is being trimmed.
+      dropRunningStats();
+      usedVersion++;
+    }
     if (nobs > n) {
-      data = data.getMatrix(nobs - n, nobs - 1, 0, nvars - 1);
-      nrows = n;
+      sketches = null;
+      if (orderTrees != null) {
+        for (int j = 0; j < nvars; j++) {
+          for (int i = start; i < start + nobs - n; i++) {
+            orderTrees[j].remove(data[j][i]);
+          }
+        }
+      }
+      start += nobs - n;
+      if (window > 0) {
+        start %= window;
+      }
       nobs = n;
-    }
-    if (useObs != 0 && nobs < useObs) {
-      // Some data used in past stats has been trimmed.
-      dataChanged = true;
+      version++;
     }
   }
 
     // Method to replace the data matrix from a Java array.  We do not 
   // check to see if the names array has the same colunm dimension, nor
   // do we "zero-out" the existing names.  This could cause errors if it 
-  // is not caught by the calling routine.
+  // is not caught by the calling routine.  The result is always an 
+  // ordinary, rather than a window, table.
   public void replaceData(double[][] dArray) {
-    data = new Jama.Matrix(dArray);
-    nvars = data.getColumnDimension();
-    nobs = data.getRowDimension();
-    dataChanged = true;
+    window = 0;
+    setDataFromRows(dArray);
+    dropRunningStats();
+    sketches = null;
+    orderTrees = null;
+    sortedCols = null;
+    version++;
+    usedVersion++;
+  }
+
+  // This method returns views of all of the variables' columns, each 
+  // holding every observation in the table.
+  ColumnView[] getColumnViews() {
+    ColumnView[] views = new ColumnView[nvars];
+    for (int j = 0; j < nvars; j++) {
+      views[j] = getColumnView(j, true);
+    }
+    return views;
   }
 
   // This method dumps the data table into a 2D array.
   public double[][] toArray() {
-    return (data.getMatrix(0, nobs - 1, 0, nvars - 1)).getArray();
+    double[][] dArray = new double[nobs][nvars];
+    for (int j = 0; j < nvars; j++) {
+      double[] col = data[j];
+      for (int i = 0; i < nobs; i++) {
+        dArray[i][j] = col[start + i];
+      }
+    }
+    return dArray;
   }
 
   // This method reports the number of variables.
@@ -288,8 +571,11 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
 
   // This method sets the value of useObs.
   public void setNObsUsed(int n) {
+    if (n != useObs) {
+      dropRunningStats();
+      usedVersion++;
+    }
     useObs = n;
-    dataChanged = true;
   }
 
   // This method reports the current value of useObs.
@@ -323,27 +609,32 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
     return varIndex;
   }
 
-    // This method returns the observations (column) on variable "index".
-  // The whole column is returned if all == true, only the last useObs 
-  // if all == false.
+    // This method returns a copy of the observations (column) on variable
+  // "index", which the caller is free to modify.  The whole column is 
+  // returned if all == true, only the last useObs if all == false.
   public double[] getColumn(int index, boolean all) {
+    ColumnView col = getColumnView(index, all);
+    return Arrays.copyOfRange(col.values, col.offset,
+            col.offset + col.length);
+  }
+
+  // This method returns a read-only view of the same observations that
+  // getColumn would return, but without copying them.  The view is only
+  // good until the table is next changed.
+  public ColumnView getColumnView(int index, boolean all) {
     int nobsUsed = nobs;
     if (!all) {
       nobsUsed = (useObs == 0) ? nobs : useObs;
       nobsUsed = Math.min(nobsUsed, nobs);
     }
-    Jama.Matrix col = data.getMatrix(nobs - nobsUsed, nobs - 1, index, index);
-    return col.getRowPackedCopy();
+    return new ColumnView(data[index], start + nobs - nobsUsed, nobsUsed);
   }
 
     // This method sets the boolean "useBessel" which determines if variances,
   // etc., are calculated with Bessel's correction or not.  The default
   // is true.
   public void useSample(boolean option) {
-    if (useBessel != option) {
-      useBessel = option;
-      changedBessel = true;
-    }
+    useBessel = option;
   }
 
   // This method returns the means as a Java array.
@@ -351,25 +642,15 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
     if (nobs == 0) {
       return null;
     }
-    if (dataChanged || changedBessel) {
-      correlation(useBessel);
-      dataChanged = false;
-      changedBessel = false;
-    }
-    return means.getArray();
+    return new double[][]{getMoments(false).getMeans()};
   }
 
-  // This method returns the means as a Java array.
+  // This method returns the standard deviations as a Java array.
   public double[][] getStdDevs() {
     if (nobs == 0) {
       return null;
     }
-    if (dataChanged || changedBessel) {
-      correlation(useBessel);
-      dataChanged = false;
-      changedBessel = false;
-    }
-    return stddevs.getArray();
+    return new double[][]{getMoments(false).getStdDevs(useBessel)};
   }
 
   // This method returns the correlation matrix as a Java array.
@@ -377,10 +658,9 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
     if (nobs < 2 || useObs == 1 || nvars < 2) {
       return null;
     }
-    if (dataChanged || changedBessel) {
-      correlation(useBessel);
-      dataChanged = false;
-      changedBessel = false;
+    if (correlVersion != usedVersion) {
+      correlation();
+      correlVersion = usedVersion;
     }
     return correl.getArray();
   }
@@ -390,14 +670,170 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
     if (nobs < 2 || useObs == 1 || nvars < 2) {
       return null;
     }
-    if (dataChanged || changedBessel) {
-      correlation(useBessel);
-      dataChanged = false;
-      changedBessel = false;
+    if (covarVersion != usedVersion || covarBessel != useBessel) {
+      covariance(useBessel);
+      covarVersion = usedVersion;
+      covarBessel = useBessel;
     }
     return covar.getArray();
   }
 
+  // This method returns the correlation matrix of just the variables 
+  // listed in var, in that order.  If the co-moments of all the variables
+  // are being kept, the block is simply read from them.  Otherwise the
+  // co-moments of just these variables are kept from now on.
+  public double[][] getCorrelations(int[] var) {
+    if (nobs < 2 || useObs == 1) {
+      return null;
+    }
+    double[][] block = getComomentBlock(var);
+    int k = var.length;
+    double[][] cor = new double[k][k];
+    for (int i = 0; i < k; i++) {
+      for (int j = i; j < k; j++) {
+        cor[i][j] = block[i][j] / Math.sqrt(block[i][i] * block[j][j]);
+        cor[j][i] = cor[i][j];
+      }
+    }
+    return cor;
+  }
+
+  // This method returns the variance-covariance matrix of just the 
+  // variables listed in var, in the same way.
+  public double[][] getVarCovars(int[] var) {
+    if (nobs < 2 || useObs == 1) {
+      return null;
+    }
+    double[][] block = getComomentBlock(var);
+    int nobsUsed = (useObs == 0) ? nobs : Math.min(useObs, nobs);
+    double divisor = (useBessel) ? (nobsUsed - 1) : nobsUsed;
+    int k = var.length;
+    double[][] cov = new double[k][k];
+    for (int i = 0; i < k; i++) {
+      for (int j = i; j < k; j++) {
+        cov[i][j] = block[i][j] / divisor;
+        cov[j][i] = cov[i][j];
+      }
+    }
+    return cov;
+  }
+
+  // This method sets the way in which medians, quantiles and percentiles
+  // are found, either QUANTILE_EXACT (the default), QUANTILE_SKETCH or
+  // QUANTILE_INDEXED.
+  public void setQuantileMethod(int method) {
+    quantileMethod = method;
+    if (method != QUANTILE_SKETCH) {
+      sketches = null;
+    }
+    if (method != QUANTILE_INDEXED) {
+      orderTrees = null;
+    }
+  }
+
+  // This method sets the accuracy parameter, k, of the quantile sketches.
+  // The sketches hold about 3k values per variable, and their error is
+  // roughly proportional to 1/k.
+  public void setSketchAccuracy(int k) {
+    if (k != sketchAccuracy) {
+      sketchAccuracy = k;
+      sketches = null;
+    }
+  }
+
+  // This method returns the median of variable var over all the 
+  // observations in the table.
+  public double getMedian(int var) {
+    if (useMethod(QUANTILE_SKETCH)) {
+      return getSketch(var).quantile(0.5);
+    }
+    if (useMethod(QUANTILE_INDEXED)) {
+      return getOrderTree(var).median();
+    }
+    if (!sortColumn(var)) {
+      return QuickSelect.median(getColumn(var, true));
+    }
+    return Descriptive.median(getSortedColumn(var));
+  }
+
+  // This method returns the phi quantile, 0 <= phi <= 1, of variable var
+  // over all the observations in the table.
+  public double getQuantile(int var, double phi) {
+    if (useMethod(QUANTILE_SKETCH)) {
+      return getSketch(var).quantile(phi);
+    }
+    if (useMethod(QUANTILE_INDEXED)) {
+      return getOrderTree(var).quantile(phi);
+    }
+    if (!sortColumn(var)) {
+      return QuickSelect.quantile(getColumn(var, true), phi);
+    }
+    return Descriptive.quantile(getSortedColumn(var), phi);
+  }
+
+  // This method returns the quantiles of variable var for each of the 
+  // fractions in phis.
+  public double[] getQuantiles(int var, double[] phis) {
+    if (useMethod(QUANTILE_SKETCH)) {
+      QuantileSketch sketch = getSketch(var);
+      double[] results = new double[phis.length];
+      for (int i = 0; i < phis.length; i++) {
+        results[i] = sketch.quantile(phis[i]);
+      }
+      return results;
+    }
+    if (useMethod(QUANTILE_INDEXED)) {
+      OrderStatisticTree tree = getOrderTree(var);
+      double[] results = new double[phis.length];
+      for (int i = 0; i < phis.length; i++) {
+        results[i] = tree.quantile(phis[i]);
+      }
+      return results;
+    }
+    if (!sortColumn(var)) {
+      return QuickSelect.quantiles(getColumn(var, true), phis);
+    }
+    return Descriptive.quantiles(getSortedColumn(var),
+            new DoubleArrayList(phis)).elements();
+  }
+
+  // This method returns the medians of all of the variables.  Where they
+  // must be found exactly from the observations, the columns are done in
+  // parallel.
+  public double[] getMedians() {
+    double[][] results = getOrderStatsAll(null);
+    double[] medians = new double[nvars];
+    for (int j = 0; j < nvars; j++) {
+      medians[j] = results[j][0];
+    }
+    return medians;
+  }
+
+  // This method returns the quantiles of each of the variables for each
+  // of the fractions in phis, one row per variable, doing the columns in 
+  // parallel as getMedians does.
+  public double[][] getQuantilesAll(double[] phis) {
+    return getOrderStatsAll(phis);
+  }
+
+  // This method returns the fraction of the observations on variable var
+  // that are less than or equal to x, interpolated between observations.
+  public double getQuantileInverse(int var, double x) {
+    if (useMethod(QUANTILE_SKETCH)) {
+      return getSketch(var).quantileInverse(x);
+    }
+    if (useMethod(QUANTILE_INDEXED)) {
+      return getOrderTree(var).quantileInverse(x);
+    }
+    if (!sortColumn(var)) {
+      // Only counting is needed, so the observations are read in place.
+      ColumnView col = getColumnView(var, true);
+      return QuickSelect.quantileInverse(col.values, col.offset, col.length,
+              x);
+    }
+    return Descriptive.quantileInverse(getSortedColumn(var), x);
+  }
+
   // This method returns the data table in a string for printing.
   public String printData() {
     if (data == null) {
@@ -407,12 +843,18 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
     for (int i = 0; i < nobs; i++) {
       rowLabels[i] = Integer.toString(i);
     }
-    return convertMatrixToString(data.getMatrix(0, nobs - 1,
-            0, nvars - 1), "Obsv #", rowLabels, names);
+    return convertMatrixToString(new Jama.Matrix(toArray()),
+            "Obsv #", rowLabels, names);
   }
 
   // This method returns the correlation matrix as a string for printing.
+  // The matrix is first brought up to date if need be, as it is no 
+  // longer calculated along with every other statistic.
   public String printCorrelation() {
+    if (nobs > 0 && correlVersion != usedVersion) {
+      correlation();
+      correlVersion = usedVersion;
+    }
     if (correl == null) {
       return null;
     }
@@ -420,8 +862,13 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
   }
 
     // This method returns the variance-covariance matrix as a string for
-  // printing.
+  // printing, first bringing it up to date if need be.
   public String printCovariance() {
+    if (nobs > 0 && (covarVersion != usedVersion || covarBessel != useBessel)) {
+      covariance(useBessel);
+      covarVersion = usedVersion;
+      covarBessel = useBessel;
+    }
     if (covar == null) {
       return null;
     }
@@ -433,13 +880,19 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
   // listed in var.  It creates a matrix of observations to pass to the
   // regression routine, below.
   public double[][] regress(int[] var) throws ExtensionException {
+    if (recursiveRegression && regressionFromMoments(var)) {
+      return rCoeffs.getArray();
+    }
     int v = var.length;
     int nobsUsed = (useObs == 0) ? nobs : useObs;
     nobsUsed = Math.min(nobsUsed, nobs);
     Jama.Matrix X = new Jama.Matrix(nobsUsed, v);
+    double[][] x = X.getArray();
     for (int j = 0; j < v; j++) {
-      X.setMatrix(0, nobsUsed - 1, j, j,
-              data.getMatrix(nobs - nobsUsed, nobs - 1, var[j], var[j]));
+      double[] col = data[var[j]];
+      for (int i = 0, ii = start + nobs - nobsUsed; i < nobsUsed; i++, ii++) {
+        x[i][j] = col[ii];
+      }
     }
     //rVars = var.clone();
     rVars = Arrays.copyOf(var, var.length);
@@ -447,6 +900,85 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
     return rCoeffs.getArray();
   }
 
+  // This method regresses each of the variables listed in deps on the 
+  // variables listed in regs, factoring the matrix of regressors once and
+  // solving for all of the dependent variables together.  For each 
+  // dependent variable it returns a 2-row array: the coefficients, 
+  // constant first, and the same statistics that getRStats returns.  The
+  // results of the last regress-on or regress-all are left untouched.
+  public double[][][] regressMany(int[] deps, int[] regs)
+          throws ExtensionException {
+    int m = deps.length;
+    int v = regs.length + 1;
+    int n = (useObs == 0) ? nobs : Math.min(useObs, nobs);
+    if (n < v) {
+      throw new ExtensionException("There are fewer observations than"
+              + " coefficients to estimate.");
+    }
+    int first = start + nobs - n;
+    Jama.Matrix X = new Jama.Matrix(n, v, 1.0);
+    double[][] x = X.getArray();
+    for (int j = 1; j < v; j++) {
+      double[] col = data[regs[j - 1]];
+      for (int i = 0; i < n; i++) {
+        x[i][j] = col[first + i];
+      }
+    }
+    Jama.Matrix Y = new Jama.Matrix(n, m);
+    double[][] y = Y.getArray();
+    for (int d = 0; d < m; d++) {
+      double[] col = data[deps[d]];
+      for (int i = 0; i < n; i++) {
+        y[i][d] = col[first + i];
+      }
+    }
+
+    // One decomposition of X serves every column of Y.
+    Jama.QRDecomposition qr = new Jama.QRDecomposition(X);
+    checkFullRank(qr.getR(), n);
+    Jama.Matrix A;
+    try {
+      A = (n == v) ? X.solve(Y) : qr.solve(Y);
+    } catch (RuntimeException e) {
+      throw new ExtensionException(e.getMessage());
+    }
+    double[][] fitted = X.times(A).getArray();
+
+    double[][][] results = new double[m][][];
+    for (int d = 0; d < m; d++) {
+      double Ybar = 0.0;
+      for (int i = 0; i < n; i++) {
+        Ybar += y[i][d];
+      }
+      Ybar /= n;
+      double SST = 0.0;
+      double SSE = 0.0;
+      for (int i = 0; i < n; i++) {
+        double dev = y[i][d] - Ybar;
+        double resid = fitted[i][d] - y[i][d];
+        SST += dev * dev;
+        SSE += resid * resid;
+      }
+      double[] coeffs = new double[v];
+      for (int j = 0; j < v; j++) {
+        coeffs[j] = A.get(j, d);
+      }
+      results[d] = new double[][]{coeffs, regressionSummary(SST, SSE, n, v)};
+    }
+    return results;
+  }
+
+  // This method sets the boolean "recursiveRegression" which determines if
+  // regressions are re-estimated from running moments that are updated
+  // as each observation is added, rather than from scratch.  The default
+  // is false.
+  public void useRecursiveRegression(boolean option) {
+    recursiveRegression = option;
+    if (!option) {
+      subMoments.clear();
+    }
+  }
+
   // This method returns the regression coefficients.
   public double[][] getRCoeffs() {
     return rCoeffs.getArray();
@@ -469,7 +1001,10 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
     return rstats;
   }
 
-  public double[][] getRCStats() {
+  public double[][] getRCStats() throws ExtensionException {
+    if (rSEBeta == null) {
+      coefficientStats();
+    }
     double[][] rcstats = new double[3][rVars.length];
     rcstats[0] = (rTBetaP.getArray())[0];
     rcstats[1] = (rTBeta.getArray())[0];
@@ -490,21 +1025,23 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
       if (fCoeffs == null) {
         fCoeffs = new Jama.Matrix(1, 2);
       }
-      fCoeffs.set(0, 0, data.get(nobs - 1, var));
+      fCoeffs.set(0, 0, data[var][start + nobs - 1]);
       fCoeffs.set(0, 1, 0.0);
       return fCoeffs.getArray();
     }
-    Jama.Matrix X = new Jama.Matrix(nobsUsed, 2);
-    // Put var or ln(var) in the first column and time in the second.
-    for (int i = 0, ii = (nobs - nobsUsed); i < nobsUsed; i++, ii++) {
-      if (type == 0) {
-        X.set(i, 0, data.get(ii, var));
-      } else {
-        X.set(i, 0, Math.log(data.get(ii, var)));
-      }
-      X.set(i, 1, (double) i);
+    // Find the constant and slope from the running trend statistics of the
+    // variable, unless a log trend is wanted and there are observations 
+    // whose logs can not be taken.  Then fall back on the full regression.
+    RunningTrend trend = fTrends.get(var);
+    if (trend == null) {
+      trend = buildRunningStat(new RunningTrend(var));
+      fTrends.put(var, trend);
+    }
+    if (type == 0 || trend.haveLogTrend()) {
+      fCoeffs = new Jama.Matrix(trend.getTrend(type != 0), 1);
+    } else {
+      fitTrend(var, type, nobsUsed);
     }
-    regression(X, true);
         // Transform the coefficients as appropriate to the type of forecast,
     // with the first being the constant and the second the slope or the 
     // growth rate, r, as appropriate to the type of forecast.
@@ -525,45 +1062,582 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
   /* ====================================================================== */
   // These are routines that operate on the data in the LogoStatsTbl.
     /* ====================================================================== */
-  private void correlation(boolean Bessel) {
-    // Does the actual variance-covariance and correlation calculations.
-    int nobsUsed = (useObs == 0) ? nobs : useObs;
-    nobsUsed = Math.min(nobsUsed, nobs);
-    Jama.Matrix X = data.getMatrix(nobs - nobsUsed, nobs - 1,
-            0, nvars - 1);
-
+  private void covariance(boolean Bessel) {
+    // Does the actual variance-covariance calculations.
     /*
-     * Find the means of each variable and then form a
-     * (v x v) matrix of the cross-products of the means times the
-     * number of observations being used.
-     * Next form the (v x v) cross-products matrix for the data,
-     * subtract the means cross-product matrix to get numerator
-     * of the covariance matrix, and divide by n-1 to get
-     * covariance matrix. NOTE that we use Bessel's correction here 
-     * so as to be consistent with the way NetLogo calculates the variance.
-     * Calculate the standard deviation of each variable from
-     * the diagonal of the covariance matrix.
-     * Form the cross-product matrix of standard deviations
-     * and use that and the covariance matrix to calculate
-     * the correlations matrix.
+     * The running co-moments, the sums of the cross-products of the 
+     * deviations from the means over the observations in use, are kept
+     * up to date as observations are added and drop out of use.  Dividing
+     * them by n-1 gives the covariance matrix. NOTE that we use Bessel's
+     * correction here so as to be consistent with the way NetLogo 
+     * calculates the variance.  This costs O(v^2), however many 
+     * observations are in use.
      */
-    Jama.Matrix ones = new Jama.Matrix(1, nobsUsed, 1.0);
-    means = (ones.times(X)).times(1.0 / nobsUsed);
-    Jama.Matrix meansMatrix
-            = (means.transpose().times(means)).times(nobsUsed);
+    covar = new Jama.Matrix(getMoments(true).getCovariances(Bessel));
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private void correlation() {
+    // Does the actual correlation calculations.  Dividing each running
+    // co-moment by the square root of the product of the corresponding 
+    // diagonal elements gives the correlations, whatever the Bessel
+    // setting.
+    correl = new Jama.Matrix(getMoments(true).getCorrelations());
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private RunningStat[] getRunningStats() {
+    // Returns all of the running statistics currently being kept.
+    RunningStat[] running = new RunningStat[subMoments.size() + fTrends.size()
+            + ((moments != null) ? 1 : 0)];
+    int i = 0;
+    for (RunningMoments m : subMoments.values()) {
+      running[i++] = m;
+    }
+    for (RunningTrend t : fTrends.values()) {
+      running[i++] = t;
+    }
+    if (moments != null) {
+      running[i] = moments;
+    }
+    return running;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private void dropRunningStats() {
+    // Discards all of the running statistics.  They will be rebuilt from 
+    // the observations in use when they are next needed.
+    moments = null;
+    subMoments.clear();
+    fTrends.clear();
+    nRemoved = 0;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private <T extends RunningStat> T buildRunningStat(T m) {
+    // Adds the observations in use to the new running statistic m.  If no
+    // other running statistics are being kept, this also starts the count
+    // of observations that have dropped out of use afresh.
+    if (moments == null && subMoments.isEmpty() && fTrends.isEmpty()) {
+      nRemoved = 0;
+    }
+    int nobsUsed = (useObs == 0) ? nobs : Math.min(useObs, nobs);
+    double[] x = new double[nvars];
+    for (int i = start + nobs - nobsUsed; i < start + nobs; i++) {
+      for (int j = 0; j < nvars; j++) {
+        x[j] = data[j][i];
+      }
+      m.add(x);
+    }
+    return m;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private RunningMoments buildMoments(int[] var, boolean withComoments) {
+    // Builds the running moments of the observations in use, of all the
+    // variables if var is null or else of those listed in var.  If there
+    // are many observations and co-moments are wanted, the moments are
+    // found all at once by the blocked (and, for big jobs, parallel)
+    // kernel in CrossProducts rather than by a rank-one update for each
+    // observation.
+    RunningMoments m = (var == null)
+            ? new RunningMoments(nvars, withComoments)
+            : new RunningMoments(var, withComoments);
+    int nobsUsed = (useObs == 0) ? nobs : Math.min(useObs, nobs);
+    if (!withComoments || nobsUsed < CrossProducts.minRows) {
+      return buildRunningStat(m);
+    }
+    if (moments == null && subMoments.isEmpty() && fTrends.isEmpty()) {
+      nRemoved = 0;
+    }
+    int[] cols = var;
+    if (cols == null) {
+      cols = new int[nvars];
+      for (int j = 0; j < nvars; j++) {
+        cols[j] = j;
+      }
+    }
+    double[] mean = new double[cols.length];
+    double[][] comoment = new double[cols.length][cols.length];
+    CrossProducts.centeredMoments(data, cols, start + nobs - nobsUsed,
+            nobsUsed, mean, comoment);
+    m.load(nobsUsed, mean, comoment);
+    return m;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private RunningMoments getMoments(boolean withComoments) {
+    // Returns the running moments of the observations in use, first 
+    // building them from those observations if need be.  Once the 
+    // co-moments have been asked for, they are kept from then on.
+    keepComoments |= withComoments;
+    if (moments == null || (keepComoments && !moments.hasComoments())) {
+      moments = buildMoments(null, keepComoments);
+    }
+    return moments;
+  }
 
-    Jama.Matrix cov = X.transpose().times(X);
-    double divisor = (Bessel) ? (nobsUsed - 1) : nobsUsed;
-    cov = (cov.minusEquals(meansMatrix)).timesEquals(1.0 / divisor);
-    covar = cov;
+  /* ---------------------------------------------------------------------- */
+  private double[][] getComomentBlock(int[] var) {
+    // Returns the co-moments of the variables listed in var, from the 
+    // running moments of all the variables if their co-moments are being
+    // kept, or else from the running moments of just these variables.
+    int k = var.length;
+    double[][] block = new double[k][k];
+    if (moments != null && moments.hasComoments()) {
+      for (int i = 0; i < k; i++) {
+        for (int j = 0; j < k; j++) {
+          block[i][j] = moments.getComoment(var[i], var[j]);
+        }
+      }
+    } else {
+      RunningMoments m = getSubMoments(var);
+      for (int i = 0; i < k; i++) {
+        for (int j = 0; j < k; j++) {
+          block[i][j] = m.getComoment(i, j);
+        }
+      }
+    }
+    return block;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private RunningMoments getSubMoments(int[] var) {
+    // Returns the running moments, with co-moments, of the variables 
+    // listed in var, first building them from the observations in use if
+    // need be.
+    String key = Arrays.toString(var);
+    RunningMoments m = subMoments.get(key);
+    if (m == null) {
+      m = buildMoments(var, true);
+      subMoments.put(key, m);
+    }
+    return m;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private boolean regressionFromMoments(int[] var) throws ExtensionException {
+    // Estimates the regression of the variable var[0] on the variables
+    // var[1] ... var[v-1] from the running moments of those variables,
+    // building the moments first if need be.  With y the dependent 
+    // variable, x the independent variables and C their co-moments, the
+    // slopes are b = Cxx^-1 Cxy and the constant is mean(y) - b'mean(x).
+    // SST is Cyy and SSE is Cyy - b'Cxy.  The variances of the slopes are
+    // the diagonal of s^2 Cxx^-1, and that of the constant is
+    // s^2 (1/n + mean(x)' Cxx^-1 mean(x)), where s^2 = SSE / DFE.
+    // Reports false, leaving the regression to be done from scratch, if
+    // there are fewer observations than variables or Cxx is not positive 
+    // definite.
+    RunningMoments m = getSubMoments(var);
+    int n = m.getN();
+    int v = var.length;
+    int k = v - 1;
+    if (n < v) {
+      return false;
+    }
+    double[] mean = m.getMeans();
+    Jama.Matrix b = new Jama.Matrix(k, 1);
+    Jama.Matrix R = new Jama.Matrix(k, k);
+    if (k > 0) {
+      Jama.Matrix Cxx = new Jama.Matrix(k, k);
+      Jama.Matrix Cxy = new Jama.Matrix(k, 1);
+      for (int i = 0; i < k; i++) {
+        for (int j = 0; j < k; j++) {
+          Cxx.set(i, j, m.getComoment(i + 1, j + 1));
+        }
+        Cxy.set(i, 0, m.getComoment(i + 1, 0));
+      }
+      // Cxx is nearly singular if the regressors are (nearly) collinear,
+      // and rounding in the co-moments can then still leave it positive
+      // definite.  As forming Cxx squares the conditioning of X, a much
+      // looser test than that on R from X is applied, and anything doubtful
+      // is left to the regression on the observations themselves.
+      Jama.CholeskyDecomposition chol = Cxx.chol();
+      if (!chol.isSPD()) {
+        return false;
+      }
+      R = chol.getL().transpose();
+      if (!isFullRank(R, Math.sqrt(n * Math.ulp(1.0)))) {
+        return false;
+      }
+      b = chol.solve(Cxy);
+    }
+
+    rVars = Arrays.copyOf(var, var.length);
+    rCoeffs = new Jama.Matrix(1, v);
+    double constant = mean[0];
+    double bCxy = 0.0;
+    for (int i = 0; i < k; i++) {
+      rCoeffs.set(0, i + 1, b.get(i, 0));
+      constant -= b.get(i, 0) * mean[i + 1];
+      bCxy += b.get(i, 0) * m.getComoment(i + 1, 0);
+    }
+    rCoeffs.set(0, 0, constant);
+
+    rSST = m.getComoment(0, 0);
+    rSSE = Math.max(0.0, rSST - bCxy);
+    rSSR = rSST - rSSE;
+    rDFT = n - 1;
+    rDFR = v - 1;
+    rDFE = rDFT - rDFR;
+
+    rR2stat = 1.0 - (rSSE / rSST);
+    rAdjR2stat = 1.0 - ((1.0 - rR2stat)
+            * ((double) rDFT / (double) rDFE));
+    rFstat = (rSSR / rDFR) / (rSSE / rDFE);
+    rFstatP = Distributions.pValueForFstat(rFstat, rDFR, rDFE, cache);
+    rStdErrEst = Math.sqrt(rSSE / rDFE);
+
+    // Leave the coefficient statistics until they are asked for.
+    rFactor = R;
+    rMeanX = Arrays.copyOfRange(mean, 1, v);
+    rN = n;
+    deferCoefficientStats();
+    return true;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private double[] regressionSummary(double SST, double SSE, int n, int v)
+          throws ExtensionException {
+    // Returns the statistics for a regression of n observations on v
+    // coefficients, in the order that getRStats returns them, given its
+    // total and error sums of squares.
+    double SSR = SST - SSE;
+    int DFT = n - 1;
+    int DFR = v - 1;
+    int DFE = DFT - DFR;
+    double R2 = 1.0 - (SSE / SST);
+    double adjR2 = 1.0 - ((1.0 - R2) * ((double) DFT / (double) DFE));
+    double F = (SSR / DFR) / (SSE / DFE);
+    double FP = Distributions.pValueForFstat(F, DFR, DFE, cache);
+    return new double[]{R2, adjR2, F, FP, Math.sqrt(SSE / DFE),
+      DFT, DFR, DFE, SST, SSR, SSE};
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static void checkFullRank(Jama.Matrix rFactor, int n)
+          throws ExtensionException {
+    // Jama rejects a matrix of regressors only if a diagonal element of
+    // its R factor is exactly zero, but rounding leaves a tiny one when 
+    // a regressor is (nearly) a linear combination of the constant and
+    // the regressors before it, e.g., when it is constant over the
+    // observations in use.
+    if (!isFullRank(rFactor, n * Math.ulp(1.0))) {
+      throw new ExtensionException("Matrix is singular: the regressors"
+              + " are linearly dependent over the observations in use.");
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static boolean isFullRank(Jama.Matrix rFactor, double tol) {
+    // |R[j][j]| is the part of column j that is independent of the 
+    // columns before it, so it is compared with tol times the length of
+    // the column, |R[0..j][j]|.
+    double[][] R = rFactor.getArray();
+    for (int j = 0; j < R.length; j++) {
+      double norm = 0.0;
+      for (int i = 0; i <= j; i++) {
+        norm = Math.hypot(norm, R[i][j]);
+      }
+      if (!(Math.abs(R[j][j]) > tol * norm)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private void coefficientStats() throws ExtensionException {
+    // Finds the standard errors, T's and P's of the coefficients of the 
+    // last regression.  With R'R = X'X, (X'X)^-1 = R^-1 R^-T, so the 
+    // diagonal element i of (X'X)^-1 is the sum of the squares of row i
+    // of R^-1, which is found by back substitution.  If R'R is instead 
+    // Cxx, those give the variances of the slopes, and that of the 
+    // constant is 1/n + mean(x)' Cxx^-1 mean(x) = 1/n + |R^-T mean(x)|^2.
+    // Each is then multiplied by s^2 = SSE / DFE.
+    double[][] R = rFactor.getArray();
+    int p = R.length;
+    double[][] RInv = new double[p][p];
+    for (int j = 0; j < p; j++) {
+      RInv[j][j] = 1.0 / R[j][j];
+      for (int i = j - 1; i >= 0; i--) {
+        double sum = 0.0;
+        for (int l = i + 1; l <= j; l++) {
+          sum += R[i][l] * RInv[l][j];
+        }
+        RInv[i][j] = -sum / R[i][i];
+      }
+    }
+    double[] c = new double[p];
+    for (int i = 0; i < p; i++) {
+      for (int j = i; j < p; j++) {
+        c[i] += RInv[i][j] * RInv[i][j];
+      }
+    }
+    int v = rSCoeffs.length;
+    double[] cii = new double[v];
+    if (rMeanX == null) {
+      System.arraycopy(c, 0, cii, 0, v);
+    } else {
+      // Solve R'z = mean(x) by forward substitution.
+      double[] z = new double[p];
+      cii[0] = 1.0 / rN;
+      for (int i = 0; i < p; i++) {
+        double sum = rMeanX[i];
+        for (int l = 0; l < i; l++) {
+          sum -= R[l][i] * z[l];
+        }
+        z[i] = sum / R[i][i];
+        cii[0] += z[i] * z[i];
+        cii[i + 1] = c[i];
+      }
+    }
+
+    rSEBeta = new Jama.Matrix(1, v);
+    rTBeta = new Jama.Matrix(1, v);
+    rTBetaP = new Jama.Matrix(1, v);
+    for (int i = 0; i < v; i++) {
+      double se = Math.sqrt(rS2 * cii[i]);
+      rSEBeta.set(0, i, se);
+      rTBeta.set(0, i, (rSCoeffs[i] / se));
+      rTBetaP.set(0, i, Distributions.pValueForTstat(rTBeta.get(0, i), rSDFE,
+              cache));
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private void deferCoefficientStats() {
+    // Notes what the coefficient statistics of the regression just done
+    // will need, and marks them as not yet found.
+    rSCoeffs = rCoeffs.getArray()[0].clone();
+    rS2 = rSSE / rDFE;
+    rSDFE = rDFE;
+    rSEBeta = null;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private boolean useMethod(int method) {
+    // The sketches and trees are used only if asked for and there are 
+    // observations in them; otherwise the sorting routines report as they
+    // always have.
+    return (quantileMethod == method && nobs > 0);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private QuantileSketch getSketch(int var) {
+    // Returns the quantile sketch of variable var, first building the 
+    // sketches of all the variables from the observations in the table if
+    // need be.
+    if (sketches == null) {
+      sketches = new QuantileSketch[nvars];
+      for (int j = 0; j < nvars; j++) {
+        QuantileSketch sketch = new QuantileSketch(sketchAccuracy);
+        double[] col = data[j];
+        for (int i = start; i < start + nobs; i++) {
+          sketch.add(col[i]);
+        }
+        sketches[j] = sketch;
+      }
+    }
+    return sketches[var];
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private double[][] getOrderStatsAll(double[] phis) {
+    // Returns, for each variable, its quantiles for the fractions in phis
+    // or, if phis is null, its median alone.  The sketches and trees 
+    // answer at once, but the exact statistics need a pass over each
+    // column.  Whether each column is to be sorted or selected from is 
+    // decided here, on the caller's thread, so that the tasks need only
+    // read the table and fill in their own columns' results.
+    double[][] results = new double[nvars][];
+    if (useMethod(QUANTILE_SKETCH) || useMethod(QUANTILE_INDEXED)) {
+      for (int j = 0; j < nvars; j++) {
+        results[j] = (phis == null) ? new double[]{getMedian(j)}
+                : getQuantiles(j, phis);
+      }
+      return results;
+    }
+    boolean[] sort = new boolean[nvars];
+    for (int j = 0; j < nvars; j++) {
+      sort[j] = sortColumn(j);
+    }
+    if (nvars < 2 || (long) nobs * nvars < minParallelOrderStats) {
+      for (int j = 0; j < nvars; j++) {
+        results[j] = exactOrderStats(j, phis, sort[j]);
+      }
+    } else {
+      CrossProducts.getPool().invoke(
+              new OrderStatsTask(0, nvars, phis, sort, results));
+    }
+    return results;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private double[] exactOrderStats(int var, double[] phis, boolean sort) {
+    // Returns the exact quantiles of variable var for the fractions in 
+    // phis, or its median if phis is null, from the column's sorted copy
+    // if sort is true or else by selection.
+    if (sort) {
+      DoubleArrayList sorted = getSortedColumn(var);
+      if (phis == null) {
+        return new double[]{Descriptive.median(sorted)};
+      }
+      return Descriptive.quantiles(sorted,
+              new DoubleArrayList(phis)).elements();
+    }
+    if (phis == null) {
+      return new double[]{QuickSelect.median(getColumn(var, true))};
+    }
+    return QuickSelect.quantiles(getColumn(var, true), phis);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  @SuppressWarnings("serial")
+  private final class OrderStatsTask extends RecursiveAction {
+    // Finds the exact order statistics of variables lo ... hi-1, splitting
+    // the range in half until each task has a single column.  Each column
+    // writes only its own entries of results, sortedCols and 
+    // sortedVersions, and the table is not changed while the tasks run.
+
+    private final int lo;
+    private final int hi;
+    private final double[] phis;
+    private final boolean[] sort;
+    private final double[][] results;
+
+    OrderStatsTask(int lo, int hi, double[] phis, boolean[] sort,
+            double[][] results) {
+      this.lo = lo;
+      this.hi = hi;
+      this.phis = phis;
+      this.sort = sort;
+      this.results = results;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo == 1) {
+        results[lo] = exactOrderStats(lo, phis, sort[lo]);
+        return;
+      }
+      int mid = (lo + hi) >>> 1;
+      invokeAll(new OrderStatsTask(lo, mid, phis, sort, results),
+              new OrderStatsTask(mid, hi, phis, sort, results));
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private boolean sortColumn(int var) {
+    // Reports whether an exact order statistic of variable var should be
+    // found from the sorted copy of the column: if there is a current 
+    // one, or if the column has already been asked about once since the
+    // table last changed.  Otherwise the query is noted and selection
+    // should be used.
+    if (sortedCols == null) {
+      sortedCols = new DoubleArrayList[nvars];
+      sortedVersions = new long[nvars];
+      selectedVersions = new long[nvars];
+      Arrays.fill(selectedVersions, -1);
+    }
+    if ((sortedCols[var] != null && sortedVersions[var] == version)
+            || selectedVersions[var] == version) {
+      return true;
+    }
+    selectedVersions[var] = version;
+    return false;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private DoubleArrayList getSortedColumn(int var) {
+    // Returns a sorted copy of all the observations on variable var, 
+    // sorting afresh only if the table has changed since the last copy 
+    // was taken.  The copy is shared, so callers must not modify it.
+    // sortColumn must have been called first.
+    if (sortedCols[var] == null || sortedVersions[var] != version) {
+      double[] X = getColumn(var, true);
+      Sorting.mergeSort(X, 0, X.length);
+      sortedCols[var] = new DoubleArrayList(X);
+      sortedVersions[var] = version;
+    }
+    return sortedCols[var];
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private OrderStatisticTree getOrderTree(int var) {
+    // Returns the order-statistic tree of variable var, first building the
+    // trees of all the variables from the observations in the table if 
+    // need be.
+    if (orderTrees == null) {
+      orderTrees = new OrderStatisticTree[nvars];
+      for (int j = 0; j < nvars; j++) {
+        OrderStatisticTree tree = new OrderStatisticTree(nobs);
+        double[] col = data[j];
+        for (int i = start; i < start + nobs; i++) {
+          tree.insert(col[i]);
+        }
+        orderTrees[j] = tree;
+      }
+    }
+    return orderTrees[var];
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private void setDataFromRows(double[][] rows) {
+    // Loads the data table, by column, from a 2D array of rows.
+    nobs = rows.length;
+    nvars = rows[0].length;
+    nrows = nobs;
+    start = 0;
+    data = new double[nvars][nobs];
+    for (int i = 0; i < nobs; i++) {
+      double[] row = rows[i];
+      for (int j = 0; j < nvars; j++) {
+        data[j][i] = row[j];
+      }
+    }
+  }
 
-    stddevs = new Jama.Matrix(1, nvars);
-    for (int i = 0; i < nvars; i++) {
-      stddevs.set(0, i, Math.sqrt(cov.get(i, i)));
+  /* ---------------------------------------------------------------------- */
+  private void ensureCapacity(int minRows) {
+    // Makes sure that the data table can hold at least minRows observations
+    // after those that have been trimmed from its start.  If more than half
+    // of the table has been trimmed away, the observations are simply moved
+    // back to the beginning.  Otherwise the capacity is at least doubled, so
+    // that a long run of single-row adds costs amortized O(1) per row.
+    if (start + minRows <= nrows) {
+      return;
+    }
+    int newNRows = nrows;
+    if (2 * minRows > nrows) {
+      newNRows = Math.max(minRows, Math.max(2 * nrows, nrowsInitial));
+    }
+    for (int j = 0; j < nvars; j++) {
+      double[] col = (newNRows == nrows) ? data[j] : new double[newNRows];
+      System.arraycopy(data[j], start, col, 0, nobs);
+      data[j] = col;
+    }
+    nrows = newNRows;
+    start = 0;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private void fitTrend(int var, int type, int nobsUsed)
+          throws ExtensionException {
+    // Fits the trend of var, or of ln(var) if type is not 0, against time
+    // by a full regression over the observations in use.
+    Jama.Matrix X = new Jama.Matrix(nobsUsed, 2);
+    double[] col = data[var];
+    // Put var or ln(var) in the first column and time in the second.
+    for (int i = 0, ii = start + nobs - nobsUsed; i < nobsUsed; i++, ii++) {
+      if (type == 0) {
+        X.set(i, 0, col[ii]);
+      } else {
+        X.set(i, 0, Math.log(col[ii]));
+      }
+      X.set(i, 1, (double) i);
     }
-    Jama.Matrix stdMatrix = stddevs.transpose().times(stddevs);
-    Jama.Matrix cor = cov.arrayRightDivide(stdMatrix);
-    correl = cor;
+    regression(X, true);
   }
 
   /* ---------------------------------------------------------------------- */
@@ -582,8 +1656,19 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
     Jama.Matrix X = new Jama.Matrix(n, v, 1);
     X.setMatrix(0, n - 1, 1, v - 1, dat.getMatrix(0, n - 1, 1, v - 1));
 
-    // Let Jama do the regression.
-    Jama.Matrix A = X.solve(Y);
+    // Let Jama do the regression.  Like X.solve(Y), we use the QR 
+    // decomposition unless X is square, but X is factored either way so
+    // that a singular X is caught and the R factor can be used for the
+    // coefficient statistics.
+    if (n < v) {
+      throw new ExtensionException("There are fewer observations than"
+              + " coefficients to estimate.");
+    }
+    Jama.QRDecomposition qr = new Jama.QRDecomposition(X);
+    if (!forecast) {
+      checkFullRank(qr.getR(), n);
+    }
+    Jama.Matrix A = (n == v) ? X.solve(Y) : qr.solve(Y);
 
         // A is now a v x 1 matrix of coefficients
     // a(0) ... a(v).  Save it.
@@ -611,22 +1696,14 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
     rAdjR2stat = 1.0 - ((1.0 - rR2stat)
             * ((double) rDFT / (double) rDFE));
     rFstat = (rSSR / rDFR) / (rSSE / rDFE);
-    rFstatP = Distributions.pValueForFstat(rFstat, rDFR, rDFE);
+    rFstatP = Distributions.pValueForFstat(rFstat, rDFR, rDFE, cache);
     rStdErrEst = Math.sqrt(rSSE / rDFE);
 
-    // Now go after the standard errors, T's and P's of the coefficients.
-    Jama.Matrix XX = (X.transpose()).times(X);
-    Jama.Matrix XXInv = XX.inverse();
-    rSEBeta = new Jama.Matrix(1, v);
-    rTBeta = new Jama.Matrix(1, v);
-    rTBetaP = new Jama.Matrix(1, v);
-    double temp = rSSE / rDFE;
-    for (int i = 0; i < v; i++) {
-      double se = Math.sqrt(temp * XXInv.get(i, i));
-      rSEBeta.set(0, i, se);
-      rTBeta.set(0, i, (rCoeffs.get(0, i) / se));
-      rTBetaP.set(0, i, Distributions.pValueForTstat(rTBeta.get(0, i), rDFE));
-    }
+    // Leave the standard errors, T's and P's of the coefficients until
+    // they are asked for.
+    rFactor = qr.getR();
+    rMeanX = null;
+    deferCoefficientStats();
   }
 
   /* ---------------------------------------------------------------------- */
@@ -678,4 +1755,21 @@ public class LogoStatsTbl implements org.nlogo.core.ExtensionObject {
     }
     return buf.toString();
   }
+
+  /* ---------------------------------------------------------------------- */
+  // A read-only view of the observations on one variable.  The observations
+  // are values[offset] through values[offset + length - 1], oldest first.
+  // The view shares its storage with the table and must not be modified.
+  static final class ColumnView {
+
+    final double[] values;
+    final int offset;
+    final int length;
+
+    ColumnView(double[] values, int offset, int length) {
+      this.values = values;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
 }
@@ -0,0 +1,43 @@
+/*
+ * Adapts NetLogo's random number generator to colt's RandomEngine, so that
+ * colt's random-variate generators draw from the same stream as NetLogo's
+ * own random primitives.  Samples are then reproducible under random-seed
+ * and, as the stream is advanced rather than reseeded, they don't repeat
+ * from one call to the next.
+ */
+package org.nlogo.extensions.stats;
+
+import cern.jet.random.engine.RandomEngine;
+import org.nlogo.api.MersenneTwisterFast;
+
+@SuppressWarnings("serial")
+public class NetLogoRandomEngine extends RandomEngine {
+
+  private final MersenneTwisterFast rng;
+
+  NetLogoRandomEngine(MersenneTwisterFast rng) {
+    this.rng = rng;
+  }
+
+  @Override
+  public int nextInt() {
+    return rng.nextInt();
+  }
+
+  // colt's generators expect raw values strictly between 0.0 and 1.0, 
+  // with the full 53 bits of a double rather than the 32 colt would make
+  // from nextInt.
+  @Override
+  public double raw() {
+    double x;
+    do {
+      x = rng.nextDouble();
+    } while (x == 0.0);
+    return x;
+  }
+
+  @Override
+  public double nextDouble() {
+    return raw();
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * An order-statistic tree holding the observations on one variable, so
+ * that exact medians, quantiles and percentiles can be found without
+ * sorting.  It is a treap (a binary search tree kept balanced, on
+ * average, by random priorities) in which each node also records the
+ * size of its subtree.  Inserting or removing an observation and finding
+ * the observation of a given rank each take O(log n) time.
+ *
+ * The nodes are held in parallel arrays rather than as objects, with
+ * node 0 standing for an empty subtree, so that a tree over a long column
+ * costs a few arrays rather than an object per observation.
+ *
+ * The medians, quantiles and percentiles are interpolated exactly as the
+ * colt Descriptive routines interpolate them over a sorted copy of the
+ * data, so the results are the same.
+ */
+package org.nlogo.extensions.stats;
+
+import java.util.Arrays;
+
+public class OrderStatisticTree {
+
+  private double[] key;
+  private int[] left;
+  private int[] right;
+  private int[] size;
+  private int[] prio;
+  private int root = 0;
+  private int nNodes = 0;
+  private int free = 0;
+  private int seed = 0x2545F491;
+
+  OrderStatisticTree(int capacity) {
+    int n = Math.max(capacity, 4) + 1;
+    key = new double[n];
+    left = new int[n];
+    right = new int[n];
+    size = new int[n];
+    prio = new int[n];
+  }
+
+  // This method reports the number of observations in the tree.
+  public int getN() {
+    return size[root];
+  }
+
+  // This method adds the observation x.
+  public void insert(double x) {
+    int nd = newNode(x);
+    root = insert(root, nd);
+  }
+
+  // This method removes one observation equal to x, if there is one.
+  public void remove(double x) {
+    root = remove(root, x);
+  }
+
+  // This method returns the observation of the given rank, counting from
+  // zero for the smallest.
+  public double select(int rank) {
+    int t = root;
+    while (true) {
+      int nLeft = size[left[t]];
+      if (rank < nLeft) {
+        t = left[t];
+      } else if (rank == nLeft) {
+        return key[t];
+      } else {
+        rank -= nLeft + 1;
+        t = right[t];
+      }
+    }
+  }
+
+  // This method returns the median, as colt's Descriptive.median would.
+  public double median() {
+    int n = getN();
+    int half = n / 2;
+    if (n % 2 == 0) {
+      return (select(half - 1) + select(half)) / 2.0;
+    }
+    return select(half);
+  }
+
+  // This method returns the phi quantile, 0 <= phi <= 1, as colt's
+  // Descriptive.quantile would.
+  public double quantile(double phi) {
+    int n = getN();
+    double index = phi * (n - 1);
+    int lhs = (int) index;
+    double delta = index - lhs;
+    if (lhs == n - 1) {
+      return select(lhs);
+    }
+    return (1 - delta) * select(lhs) + delta * select(lhs + 1);
+  }
+
+  // This method returns the fraction of observations less than or equal
+  // to x, interpolated as colt's Descriptive.quantileInverse would.
+  public double quantileInverse(double x) {
+    int n = getN();
+    int below = countBelow(x);
+    int atMost = countAtMost(x);
+    if (atMost > below) {
+      // x is one of the observations.
+      return (double) atMost / n;
+    }
+    if (below == 0 || below == n) {
+      return (double) below / n;
+    }
+    double from = select(below - 1);
+    double to = select(below);
+    double delta = (x - from) / (to - from);
+    return (below + delta) / n;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private int countBelow(double x) {
+    // Returns the number of observations less than x.
+    int count = 0;
+    int t = root;
+    while (t != 0) {
+      if (key[t] < x) {
+        count += size[left[t]] + 1;
+        t = right[t];
+      } else {
+        t = left[t];
+      }
+    }
+    return count;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private int countAtMost(double x) {
+    // Returns the number of observations less than or equal to x.
+    int count = 0;
+    int t = root;
+    while (t != 0) {
+      if (key[t] <= x) {
+        count += size[left[t]] + 1;
+        t = right[t];
+      } else {
+        t = left[t];
+      }
+    }
+    return count;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private int newNode(double x) {
+    // Takes a node from the free list, or from the end of the arrays,
+    // doubling them if need be.
+    int nd;
+    if (free != 0) {
+      nd = free;
+      free = left[nd];
+    } else {
+      nd = ++nNodes;
+      if (nd == key.length) {
+        int n = 2 * key.length;
+        key = Arrays.copyOf(key, n);
+        left = Arrays.copyOf(left, n);
+        right = Arrays.copyOf(right, n);
+        size = Arrays.copyOf(size, n);
+        prio = Arrays.copyOf(prio, n);
+      }
+    }
+    // A xorshift generator gives the priorities, so that the shape of the
+    // tree, though not its answers, is the same from run to run.
+    seed ^= seed << 13;
+    seed ^= seed >>> 17;
+    seed ^= seed << 5;
+    key[nd] = x;
+    prio[nd] = seed;
+    left[nd] = 0;
+    right[nd] = 0;
+    size[nd] = 1;
+    return nd;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private int insert(int t, int nd) {
+    // Inserts node nd into the subtree rooted at t, rotating it up while
+    // its priority is higher than its parent's, and returns the new root
+    // of the subtree.
+    if (t == 0) {
+      return nd;
+    }
+    if (key[nd] < key[t]) {
+      left[t] = insert(left[t], nd);
+      if (prio[left[t]] > prio[t]) {
+        t = rotateRight(t);
+      }
+    } else {
+      right[t] = insert(right[t], nd);
+      if (prio[right[t]] > prio[t]) {
+        t = rotateLeft(t);
+      }
+    }
+    size[t] = size[left[t]] + size[right[t]] + 1;
+    return t;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private int remove(int t, double x) {
+    // Removes a node with key x from the subtree rooted at t, replacing it
+    // by the merge of its children, and returns the new root.
+    if (t == 0) {
+      return 0;
+    }
+    if (x < key[t]) {
+      left[t] = remove(left[t], x);
+    } else if (x > key[t]) {
+      right[t] = remove(right[t], x);
+    } else {
+      int m = merge(left[t], right[t]);
+      left[t] = free;
+      free = t;
+      return m;
+    }
+    size[t] = size[left[t]] + size[right[t]] + 1;
+    return t;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private int merge(int a, int b) {
+    // Merges subtrees a and b, where no key in a exceeds any key in b.
+    if (a == 0) {
+      return b;
+    }
+    if (b == 0) {
+      return a;
+    }
+    if (prio[a] > prio[b]) {
+      right[a] = merge(right[a], b);
+      size[a] = size[left[a]] + size[right[a]] + 1;
+      return a;
+    }
+    left[b] = merge(a, left[b]);
+    size[b] = size[left[b]] + size[right[b]] + 1;
+    return b;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private int rotateRight(int t) {
+    int l = left[t];
+    left[t] = right[l];
+    right[l] = t;
+    size[t] = size[left[t]] + size[right[t]] + 1;
+    size[l] = size[left[l]] + size[right[l]] + 1;
+    return l;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private int rotateLeft(int t) {
+    int r = right[t];
+    right[t] = left[r];
+    left[r] = t;
+    size[t] = size[left[t]] + size[right[t]] + 1;
+    size[r] = size[left[r]] + size[right[r]] + 1;
+    return r;
+  }
+}
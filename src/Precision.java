@@ -0,0 +1,25 @@
+/*
+ * Holds the precision chosen by stats:set-precision for the normal and
+ * lognormal distribution functions and their inverses in one NetLogo
+ * workspace.  The samplers do not use it.  Like the TblRegistry, it belongs to the workspace's own
+ * StatsExtension and is handed to the primitives that need it, so that
+ * one model choosing fast precision does not change the results of other
+ * models running in the same JVM, e.g., in parallel BehaviorSpace runs.
+ */
+package org.nlogo.extensions.stats;
+
+public class Precision {
+
+  private volatile boolean fast = false;
+
+  // This method reports whether the fast approximations are in use.
+  public boolean isFast() {
+    return fast;
+  }
+
+  // This method chooses between colt's accurate routines (the default)
+  // and FastNormal's approximations.
+  public void setFast(boolean fast) {
+    this.fast = fast;
+  }
+}
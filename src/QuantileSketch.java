@@ -0,0 +1,213 @@
+/*
+ * A streaming quantile sketch, after Karnin, Lang and Liberty's KLL sketch,
+ * that summarizes the observations on one variable in a bounded amount of
+ * space.  Observations are added to a stack of "compactors".  When a
+ * compactor fills, it is sorted and every other item is passed up to the
+ * next compactor, where it stands for twice as many observations.  Which
+ * half is passed up alternates, so that results are reproducible.
+ *
+ * The accuracy parameter k sets the capacity of the top compactor, and
+ * the sketch never holds more than about 3k items.  Until k observations
+ * have been added, every one is kept and the sketch is exact.  After 
+ * that, the rank of the value reported for a quantile is typically off by
+ * less than 1% of the number of observations when k = 200, and the error 
+ * shrinks in proportion to 1/k.
+ *
+ * The quantiles are interpolated in the same way as the colt Descriptive
+ * routines used for exact quantiles, so that the two agree while the
+ * sketch is still exact.
+ */
+package org.nlogo.extensions.stats;
+
+import java.util.Arrays;
+
+public class QuantileSketch {
+
+  private final int k;
+  private double[][] levels = new double[0][];
+  private int[] sizes = new int[0];
+  private boolean[] flips = new boolean[0];
+  private int nLevels = 0;
+  private int size = 0;
+  private int maxSize = 0;
+  private long n = 0;
+  // The items sorted by value, and the cumulative weights through each,
+  // built when first needed after a change.
+  private double[] sortedValues = null;
+  private long[] cumWeights = null;
+  private int nSorted = 0;
+
+  QuantileSketch(int k) {
+    this.k = k;
+    grow();
+  }
+
+  // This method adds the observation x.
+  public void add(double x) {
+    if (sizes[0] == levels[0].length) {
+      levels[0] = Arrays.copyOf(levels[0], 2 * levels[0].length);
+    }
+    levels[0][sizes[0]++] = x;
+    size++;
+    n++;
+    sortedValues = null;
+    if (size >= maxSize) {
+      compress();
+    }
+  }
+
+  // This method reports the number of observations added.
+  public long getN() {
+    return n;
+  }
+
+  // This method returns the approximate phi quantile, 0 <= phi <= 1.
+  public double quantile(double phi) {
+    sort();
+    double rank = phi * (n - 1);
+    long lhs = (long) rank;
+    double delta = rank - lhs;
+    if (lhs == n - 1) {
+      return valueAtRank(lhs);
+    }
+    return (1 - delta) * valueAtRank(lhs) + delta * valueAtRank(lhs + 1);
+  }
+
+  // This method returns the approximate fraction of observations less
+  // than or equal to x, interpolated as in colt's Descriptive.
+  // quantileInverse.
+  public double quantileInverse(double x) {
+    sort();
+    int i = Arrays.binarySearch(sortedValues, 0, nSorted, x);
+    if (i >= 0) {
+      while (i + 1 < nSorted && sortedValues[i + 1] == x) {
+        i++;
+      }
+      return (double) cumWeights[i] / n;
+    }
+    int insertionPoint = -i - 1;
+    if (insertionPoint == 0) {
+      return 0.0;
+    }
+    if (insertionPoint == nSorted) {
+      return 1.0;
+    }
+    double from = sortedValues[insertionPoint - 1];
+    double to = sortedValues[insertionPoint];
+    double delta = (x - from) / (to - from);
+    long weight = cumWeights[insertionPoint] - cumWeights[insertionPoint - 1];
+    return (cumWeights[insertionPoint - 1] + delta * weight) / n;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private int capacity(int level) {
+    // The capacity of a compactor shrinks by a factor of 2/3 for each
+    // level it is below the top, but is never less than two.
+    int depth = nLevels - level - 1;
+    return (int) Math.ceil(Math.pow(2.0 / 3.0, depth) * k) + 1;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private void grow() {
+    // Adds a compactor at the top.
+    nLevels++;
+    levels = Arrays.copyOf(levels, nLevels);
+    sizes = Arrays.copyOf(sizes, nLevels);
+    flips = Arrays.copyOf(flips, nLevels);
+    maxSize = 0;
+    for (int h = 0; h < nLevels; h++) {
+      maxSize += capacity(h);
+    }
+    levels[nLevels - 1] = new double[capacity(nLevels - 1) + 1];
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private void compress() {
+    // Compacts the lowest full compactor, and those above it if need be,
+    // until the sketch is back within its size.
+    for (int h = 0; h < nLevels; h++) {
+      if (sizes[h] >= capacity(h)) {
+        if (h + 1 >= nLevels) {
+          grow();
+        }
+        double[] buf = levels[h];
+        int len = sizes[h];
+        Arrays.sort(buf, 0, len);
+        // With an odd number of items, the smallest stays behind and the
+        // rest are paired off.
+        int first = len % 2;
+        int offset = (flips[h]) ? 1 : 0;
+        flips[h] = !flips[h];
+        int nUp = (len - first) / 2;
+        if (sizes[h + 1] + nUp > levels[h + 1].length) {
+          levels[h + 1] = Arrays.copyOf(levels[h + 1],
+                  Math.max(2 * levels[h + 1].length, sizes[h + 1] + nUp));
+        }
+        double[] up = levels[h + 1];
+        for (int i = first + offset; i < len; i += 2) {
+          up[sizes[h + 1]++] = buf[i];
+        }
+        sizes[h] = first;
+        size -= nUp;
+        if (size < maxSize) {
+          break;
+        }
+      }
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private void sort() {
+    // Merges the items of all of the compactors into one array sorted by
+    // value, along with the cumulative weight through each item.  An item
+    // in compactor h stands for 2^h observations.
+    if (sortedValues != null) {
+      return;
+    }
+    sortedValues = new double[size];
+    long[] weights = new long[size];
+    nSorted = 0;
+    for (int h = 0; h < nLevels; h++) {
+      Arrays.sort(levels[h], 0, sizes[h]);
+      // Merge this sorted run with those merged so far.
+      double[] merged = new double[nSorted + sizes[h]];
+      long[] mergedWeights = new long[nSorted + sizes[h]];
+      int i = 0;
+      int j = 0;
+      int m = 0;
+      while (i < nSorted || j < sizes[h]) {
+        if (j >= sizes[h] || (i < nSorted && sortedValues[i] <= levels[h][j])) {
+          merged[m] = sortedValues[i];
+          mergedWeights[m++] = weights[i++];
+        } else {
+          merged[m] = levels[h][j++];
+          mergedWeights[m++] = 1L << h;
+        }
+      }
+      System.arraycopy(merged, 0, sortedValues, 0, m);
+      System.arraycopy(mergedWeights, 0, weights, 0, m);
+      nSorted = m;
+    }
+    cumWeights = weights;
+    for (int i = 1; i < nSorted; i++) {
+      cumWeights[i] += cumWeights[i - 1];
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private double valueAtRank(long rank) {
+    // Returns the value of the item that covers the given (zero-based)
+    // rank, i.e., the first whose cumulative weight exceeds it.
+    int lo = 0;
+    int hi = nSorted - 1;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (cumWeights[mid] > rank) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return sortedValues[lo];
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Finds order statistics of an array of observations in O(n) expected
+ * time, without sorting it.  It is an introselect: a quickselect that
+ * partitions the array three ways around a median-of-three pivot (so
+ * that runs of equal observations, common in model output, cost nothing
+ * extra), and that falls back on sorting any part of the array on which
+ * it has recursed too deeply.  Several ranks can be selected at once,
+ * with each partition serving all of the ranks that fall in it.
+ *
+ * The quantile, median and quantileInverse methods give the same results
+ * as the colt Descriptive methods of the same names would on a sorted
+ * copy of the observations.
+ */
+package org.nlogo.extensions.stats;
+
+import java.util.Arrays;
+
+public final class QuickSelect {
+
+  private QuickSelect() {
+  }
+
+  // This method returns the median of the observations in X, which it
+  // reorders.
+  public static double median(double[] X) {
+    int n = X.length;
+    if (n == 0) {
+      return 0.0;
+    }
+    int half = n / 2;
+    if (n % 2 == 0) {
+      select(X, new int[]{half - 1, half});
+      return (X[half - 1] + X[half]) / 2.0;
+    }
+    select(X, new int[]{half});
+    return X[half];
+  }
+
+  // This method returns the phi quantile of the observations in X, which
+  // it reorders.
+  public static double quantile(double[] X, double phi) {
+    return quantiles(X, new double[]{phi})[0];
+  }
+
+  // This method returns the quantiles of the observations in X for each
+  // of the fractions in phis, partitioning X (which it reorders) once for
+  // all of them.
+  public static double[] quantiles(double[] X, double[] phis) {
+    int n = X.length;
+    double[] results = new double[phis.length];
+    if (n == 0) {
+      return results;
+    }
+    // Each quantile interpolates between the observations of rank lhs
+    // and lhs + 1.
+    int[] ranks = new int[2 * phis.length];
+    int nranks = 0;
+    for (double phi : phis) {
+      int lhs = (int) (phi * (n - 1));
+      ranks[nranks++] = lhs;
+      if (lhs < n - 1) {
+        ranks[nranks++] = lhs + 1;
+      }
+    }
+    Arrays.sort(ranks, 0, nranks);
+    int nunique = 0;
+    for (int i = 0; i < nranks; i++) {
+      if (nunique == 0 || ranks[i] != ranks[nunique - 1]) {
+        ranks[nunique++] = ranks[i];
+      }
+    }
+    select(X, Arrays.copyOf(ranks, nunique));
+    for (int i = 0; i < phis.length; i++) {
+      double index = phis[i] * (n - 1);
+      int lhs = (int) index;
+      double delta = index - lhs;
+      if (lhs == n - 1) {
+        results[i] = X[lhs];
+      } else {
+        results[i] = (1 - delta) * X[lhs] + delta * X[lhs + 1];
+      }
+    }
+    return results;
+  }
+
+  // This method returns the fraction of the observations in X that are
+  // less than or equal to x, interpolated between the observations on
+  // either side of x if x is not among them.  A single pass suffices.
+  public static double quantileInverse(double[] X, double x) {
+    return quantileInverse(X, 0, X.length, x);
+  }
+
+  // This method does the same for the n observations in X starting at
+  // offset, which it only reads, so they need not be copied out of a 
+  // table first.
+  public static double quantileInverse(double[] X, int offset, int n,
+          double x) {
+    int below = 0;
+    int equal = 0;
+    double from = Double.NEGATIVE_INFINITY;
+    double to = Double.POSITIVE_INFINITY;
+    for (int i = offset; i < offset + n; i++) {
+      double xi = X[i];
+      if (xi < x) {
+        below++;
+        from = Math.max(from, xi);
+      } else if (xi > x) {
+        to = Math.min(to, xi);
+      } else {
+        equal++;
+      }
+    }
+    if (equal > 0) {
+      return (double) (below + equal) / n;
+    }
+    if (below == 0 || below == n) {
+      return (double) below / n;
+    }
+    double delta = (x - from) / (to - from);
+    return (below + delta) / n;
+  }
+
+  // This method reorders X so that, for each of the ranks (which must be
+  // in ascending order), X[rank] holds the observation that it would
+  // hold were X sorted.
+  public static void select(double[] X, int[] ranks) {
+    int depth = 2 * (32 - Integer.numberOfLeadingZeros(X.length));
+    select(X, 0, X.length - 1, ranks, 0, ranks.length - 1, depth);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static void select(double[] X, int lo, int hi, int[] ranks,
+          int rlo, int rhi, int depth) {
+    // Selects ranks[rlo..rhi], all of which lie in X[lo..hi].
+    while (rlo <= rhi) {
+      if (hi - lo < 16 || depth-- == 0) {
+        Arrays.sort(X, lo, hi + 1);
+        return;
+      }
+      // Partition X[lo..hi] into the observations less than, equal to and
+      // greater than the pivot.  Those equal are then in place.
+      double pivot = medianOf3(X[lo], X[(lo + hi) >>> 1], X[hi]);
+      int lt = lo;
+      int gt = hi;
+      int i = lo;
+      while (i <= gt) {
+        if (X[i] < pivot) {
+          swap(X, lt++, i++);
+        } else if (X[i] > pivot) {
+          swap(X, i, gt--);
+        } else {
+          i++;
+        }
+      }
+      int r1 = rlo;
+      while (r1 <= rhi && ranks[r1] < lt) {
+        r1++;
+      }
+      int r2 = r1;
+      while (r2 <= rhi && ranks[r2] <= gt) {
+        r2++;
+      }
+      // Recurse on the lower part and loop on the upper.
+      select(X, lo, lt - 1, ranks, rlo, r1 - 1, depth);
+      lo = gt + 1;
+      rlo = r2;
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static double medianOf3(double a, double b, double c) {
+    if (a < b) {
+      return (b < c) ? b : ((a < c) ? c : a);
+    }
+    return (a < c) ? a : ((b < c) ? c : b);
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static void swap(double[] X, int i, int j) {
+    double t = X[i];
+    X[i] = X[j];
+    X[j] = t;
+  }
+}
@@ -83,47 +83,36 @@ public class RegressionPrims {
             // numbers, simply put them in the varlist array.  If it is a
             // list of variable names, then we need to convert each name
             // to its index number.
-            LogoList LogoVarList = args[1].getList();
-            int v = LogoVarList.size();
-            int[] vars = new int[v];
-            int nv = tbl.getNVars();
-            if (v > nv) {
-                throw new org.nlogo.api.ExtensionException(
-                        "Too many variables in the regress-on list.");
-            }
-            if (LogoVarList.get(0) instanceof Number) {
-                // We assume it is a list of numbers that need to be converted
-                // to ints.
-                for (int j = 0; j < v; j++) {
-                    vars[j] = (int) Math.round(((Number) LogoVarList.get(j)).doubleValue());
-                    if (vars[j] < 0 || vars[j] >= nv) {
-                        throw new org.nlogo.api.ExtensionException(
-                                "Variable number out of range in the regress-on list.");
-                    }
-                }
-            } else {
-                // We assume its a list of names.
-                for (int j = 0; j < v; j++) {
-                    String name = LogoVarList.get(j).toString();
-                    vars[j] = tbl.getNameIndex(name);
-                    if (vars[j] == -1) {
-                        throw new org.nlogo.api.ExtensionException(
-                                "No variable with the name " + name + ".");
-                    }
-                }
-            }
-
-            // check vars for duplicates.
-            if (ExtnUtils.duplicates(vars, nv)) {
-                throw new ExtensionException("Duplicate variables in the "
-                        + "regress-on variable list.");
-            }
+            int[] vars = ExtnUtils.getVarNumbersFromList(tbl,
+                    args[1].getList(), "regress-on");
 
             double[][] coeffs = tbl.regress(vars);
             return ExtnUtils.convertArrayToSimpleLogoList(coeffs);
         }
     }
 
+    /* ---------------------------------------------------------------------- */
+    public static class UseRecursiveRegression implements Command {
+        // Specify whether regressions on the table should be re-estimated
+        // from running moments that are updated as each observation is
+        // added, rather than from scratch.  This makes repeated regressions
+        // on the same variables much faster as the table grows or its 
+        // window moves.
+
+        @Override
+        public Syntax getSyntax() {
+            return SyntaxJ.commandSyntax(new int[]{Syntax.WildcardType(),
+                        Syntax.BooleanType()});
+        }
+
+        @Override
+        public void perform(Argument args[], Context context)
+                throws ExtensionException, LogoException {
+            LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
+            tbl.useRecursiveRegression(args[1].getBoolean());
+        }
+    }
+
     /* ---------------------------------------------------------------------- */
     public static class GetRegressionStats implements Reporter {
         // Returns the latest regression statistics.
@@ -168,4 +157,56 @@ public class RegressionPrims {
             return ExtnUtils.convertArrayToNestedLogoList(stats);
         }
     }
+
+    /* ---------------------------------------------------------------------- */
+    public static class RegressMany implements Reporter {
+        /*
+         * This reporter regresses each of a list of dependent variables
+         * on the same list of independent variables, given by number or
+         * name, factoring the matrix of independent variables only once.
+         * It returns a list with one entry for each dependent variable,
+         * in order: a two-element list of its regression coefficients
+         * (the constant first) and its regression statistics, in the 
+         * same order as get-rstats.  What get-rstats and get-rcstats 
+         * report is not changed.
+         */
+
+        @Override
+        public Syntax getSyntax() {
+            return SyntaxJ.reporterSyntax(new int[]{Syntax.WildcardType(),
+                        Syntax.ListType(), Syntax.ListType()},
+                    Syntax.ListType());
+        }
+
+        @Override
+        public Object report(Argument args[], Context context)
+                throws ExtensionException, LogoException {
+
+            LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
+            int[] deps = ExtnUtils.getVarNumbersFromList(tbl,
+                    args[1].getList(), "regress-many dependent");
+            LogoList regList = args[2].getList();
+            int[] regs = (regList.size() == 0) ? new int[0]
+                    : ExtnUtils.getVarNumbersFromList(tbl, regList,
+                            "regress-many regressor");
+            for (int dep : deps) {
+                for (int reg : regs) {
+                    if (dep == reg) {
+                        throw new ExtensionException("A dependent variable"
+                                + " may not also be a regressor.");
+                    }
+                }
+            }
+
+            double[][][] results = tbl.regressMany(deps, regs);
+            LogoListBuilder lst = new LogoListBuilder();
+            for (double[][] result : results) {
+                LogoListBuilder pair = new LogoListBuilder();
+                pair.add(ExtnUtils.convertVectorToSimpleLogoList(result[0]));
+                pair.add(ExtnUtils.convertVectorToSimpleLogoList(result[1]));
+                lst.add(pair.toLogoList());
+            }
+            return lst.toLogoList();
+        }
+    }
 }
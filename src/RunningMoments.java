@@ -0,0 +1,254 @@
+/*
+ * Keeps the running means and sums of squared deviations from the mean of
+ * the variables in a data table as observations are added to and removed
+ * from it.  The updates use Welford's method, which is numerically stable
+ * and costs O(v) per observation, so the means and standard deviations can
+ * be reported at any time without rescanning the data.
+ *
+ * Optionally, the full (v x v) matrix of co-moments, the sums of the 
+ * cross-products of deviations from the means, is kept as well.  Adding
+ * or removing an observation is then a rank-one update or downdate of 
+ * that matrix, costing O(v^2), from which the variance-covariance and 
+ * correlation matrices follow directly.
+ *
+ * The moments may be kept for all the variables in the table or for just
+ * those listed in vars, e.g., the variables of a regression.
+ */
+package org.nlogo.extensions.stats;
+
+public class RunningMoments implements RunningStat {
+
+  private final int nvars;
+  private final int[] vars;
+  private int n = 0;
+  private final double[] mean;
+  private final double[] m2;
+  private final double[][] comoment;
+  private final double[] d;
+
+  RunningMoments(int nvars, boolean keepComoments) {
+    this(null, nvars, keepComoments);
+  }
+
+  // This constructor keeps the moments of only the variables listed in 
+  // vars, in that order.
+  RunningMoments(int[] vars, boolean keepComoments) {
+    this(vars.clone(), vars.length, keepComoments);
+  }
+
+  private RunningMoments(int[] vars, int nvars, boolean keepComoments) {
+    this.nvars = nvars;
+    this.vars = vars;
+    mean = new double[nvars];
+    m2 = new double[nvars];
+    comoment = (keepComoments) ? new double[nvars][nvars] : null;
+    d = new double[nvars];
+  }
+
+  @Override
+  public void add(double[] x) {
+    n++;
+    for (int j = 0; j < nvars; j++) {
+      double xj = (vars == null) ? x[j] : x[vars[j]];
+      d[j] = xj - mean[j];
+      mean[j] += d[j] / n;
+      m2[j] += d[j] * (xj - mean[j]);
+    }
+    if (comoment != null) {
+      // The co-moments grow by ((n - 1) / n) d d', where d is the 
+      // deviation of x from the old means.  Only the upper triangle is
+      // kept.
+      double f = (n - 1.0) / n;
+      for (int j = 0; j < nvars; j++) {
+        double fd = f * d[j];
+        double[] cj = comoment[j];
+        for (int k = j; k < nvars; k++) {
+          cj[k] += fd * d[k];
+        }
+      }
+    }
+  }
+
+  // Many observations at once are first summarized on their own, by
+  // CrossProducts when the co-moments are kept, and the summary is then
+  // merged into the running moments by the pairwise formulae of Chan,
+  // Golub and LeVeque.  A few are simply added one at a time.
+  @Override
+  public void addRows(double[][] data, int first, int count) {
+    if (count < CrossProducts.minRows) {
+      double[] x = new double[data.length];
+      for (int i = first; i < first + count; i++) {
+        for (int j = 0; j < data.length; j++) {
+          x[j] = data[j][i];
+        }
+        add(x);
+      }
+      return;
+    }
+    double[] bMean = new double[nvars];
+    double[] bM2 = new double[nvars];
+    double[][] bComoment = null;
+    if (comoment != null) {
+      int[] cols = vars;
+      if (cols == null) {
+        cols = new int[nvars];
+        for (int j = 0; j < nvars; j++) {
+          cols[j] = j;
+        }
+      }
+      bComoment = new double[nvars][nvars];
+      CrossProducts.centeredMoments(data, cols, first, count, bMean,
+              bComoment);
+      for (int j = 0; j < nvars; j++) {
+        bM2[j] = bComoment[j][j];
+      }
+    } else {
+      for (int j = 0; j < nvars; j++) {
+        double[] col = data[(vars == null) ? j : vars[j]];
+        double sum = 0.0;
+        for (int i = first; i < first + count; i++) {
+          sum += col[i];
+        }
+        double mj = sum / count;
+        double ss = 0.0;
+        for (int i = first; i < first + count; i++) {
+          double dev = col[i] - mj;
+          ss += dev * dev;
+        }
+        bMean[j] = mj;
+        bM2[j] = ss;
+      }
+    }
+    // The sums about the combined means are the sums of the two parts
+    // about their own means plus (na nb / n) d d', where d is the
+    // difference between the parts' means.
+    int nTotal = n + count;
+    double f = (double) n * count / nTotal;
+    for (int j = 0; j < nvars; j++) {
+      d[j] = bMean[j] - mean[j];
+      mean[j] += d[j] * count / nTotal;
+      m2[j] += bM2[j] + f * d[j] * d[j];
+    }
+    if (comoment != null) {
+      for (int j = 0; j < nvars; j++) {
+        double fd = f * d[j];
+        double[] cj = comoment[j];
+        double[] bj = bComoment[j];
+        for (int k = j; k < nvars; k++) {
+          cj[k] += bj[k] + fd * d[k];
+        }
+      }
+    }
+    n = nTotal;
+  }
+
+  // Removing an observation simply reverses the steps in add.
+  @Override
+  public void remove(double[] x) {
+    if (n <= 1) {
+      n = 0;
+      java.util.Arrays.fill(mean, 0.0);
+      java.util.Arrays.fill(m2, 0.0);
+      if (comoment != null) {
+        for (double[] cj : comoment) {
+          java.util.Arrays.fill(cj, 0.0);
+        }
+      }
+      return;
+    }
+    for (int j = 0; j < nvars; j++) {
+      double xj = (vars == null) ? x[j] : x[vars[j]];
+      d[j] = xj - mean[j];
+    }
+    if (comoment != null) {
+      // The co-moments shrink by (n / (n - 1)) d d', where d is the 
+      // deviation of x from the current means.
+      double f = n / (n - 1.0);
+      for (int j = 0; j < nvars; j++) {
+        double fd = f * d[j];
+        double[] cj = comoment[j];
+        for (int k = j; k < nvars; k++) {
+          cj[k] -= fd * d[k];
+        }
+      }
+    }
+    n--;
+    for (int j = 0; j < nvars; j++) {
+      mean[j] -= d[j] / n;
+      m2[j] = Math.max(0.0, m2[j] - d[j] * (d[j] + d[j] / n));
+    }
+  }
+
+  // This method loads moments found elsewhere, e.g., by CrossProducts,
+  // for n observations into empty running moments that keep co-moments.
+  // Only the upper triangle of comoment is used.
+  void load(int n, double[] mean, double[][] comoment) {
+    this.n = n;
+    for (int j = 0; j < nvars; j++) {
+      this.mean[j] = mean[j];
+      m2[j] = comoment[j][j];
+      System.arraycopy(comoment[j], j, this.comoment[j], j, nvars - j);
+    }
+  }
+
+  // This method reports whether the co-moments are being kept.
+  public boolean hasComoments() {
+    return (comoment != null);
+  }
+
+  // This method reports the number of observations.
+  public int getN() {
+    return n;
+  }
+
+  // This method returns the means of the variables.
+  public double[] getMeans() {
+    return mean.clone();
+  }
+
+  // This method returns the standard deviations of the variables, with
+  // or without Bessel's correction.
+  public double[] getStdDevs(boolean Bessel) {
+    double divisor = (Bessel) ? (n - 1) : n;
+    double[] stddevs = new double[nvars];
+    for (int j = 0; j < nvars; j++) {
+      stddevs[j] = Math.sqrt(m2[j] / divisor);
+    }
+    return stddevs;
+  }
+
+  // This method returns the co-moment of variables j and k, i.e., the sum
+  // of the products of their deviations from their means.  The co-moments
+  // must be being kept.
+  public double getComoment(int j, int k) {
+    return (j <= k) ? comoment[j][k] : comoment[k][j];
+  }
+
+  // This method returns the variance-covariance matrix, with or without
+  // Bessel's correction.  The co-moments must be being kept.
+  public double[][] getCovariances(boolean Bessel) {
+    double divisor = (Bessel) ? (n - 1) : n;
+    double[][] cov = new double[nvars][nvars];
+    for (int j = 0; j < nvars; j++) {
+      for (int k = j; k < nvars; k++) {
+        cov[j][k] = comoment[j][k] / divisor;
+        cov[k][j] = cov[j][k];
+      }
+    }
+    return cov;
+  }
+
+  // This method returns the correlation matrix.  The co-moments must be 
+  // being kept.
+  public double[][] getCorrelations() {
+    double[][] cor = new double[nvars][nvars];
+    for (int j = 0; j < nvars; j++) {
+      for (int k = j; k < nvars; k++) {
+        cor[j][k] = comoment[j][k]
+                / Math.sqrt(comoment[j][j] * comoment[k][k]);
+        cor[k][j] = cor[j][k];
+      }
+    }
+    return cor;
+  }
+}
@@ -0,0 +1,22 @@
+/*
+ * The interface shared by the running statistics that a LogoStatsTbl keeps
+ * up to date as observations are added to the set of observations in use
+ * and drop out of it.  Observations always drop out in the order in which
+ * they were added.
+ */
+package org.nlogo.extensions.stats;
+
+interface RunningStat {
+
+  // Adds the observation x, a full row of the data table.
+  void add(double[] x);
+
+  // Adds the count observations in rows first ... first + count - 1 of
+  // the column-major array data, in which data[j][i] is variable j of 
+  // observation i, just as count calls to add would.
+  void addRows(double[][] data, int first, int count);
+
+  // Removes the observation x, which is always the oldest one added and 
+  // not yet removed.
+  void remove(double[] x);
+}
@@ -0,0 +1,124 @@
+/*
+ * Keeps the running statistics needed to fit a linear time trend to one 
+ * variable in a data table, and to its natural log, as observations are
+ * added and drop out of use.  Each observation is given a time one greater
+ * than the last, and the means and co-moments of time and the variable 
+ * (and of time and the log of the variable) are updated using Welford's
+ * method.  The slope and constant of either trend then cost O(1) to find,
+ * however many observations are in use.
+ */
+package org.nlogo.extensions.stats;
+
+public class RunningTrend implements RunningStat {
+
+  private final int var;
+  // The time of the oldest observation and of the next one to be added.
+  private long tFirst = 0;
+  private long tNext = 0;
+  // The running statistics for time and the variable.
+  private int n = 0;
+  private double tMean = 0.0;
+  private double yMean = 0.0;
+  private double ctt = 0.0;
+  private double cty = 0.0;
+  // The running statistics for time and the log of the variable.  Only
+  // observations with positive values can be included, so the number of 
+  // observations with non-positive values is also kept.
+  private int nLog = 0;
+  private int nNonPositive = 0;
+  private double tMeanLog = 0.0;
+  private double lMean = 0.0;
+  private double cttLog = 0.0;
+  private double ctl = 0.0;
+
+  RunningTrend(int var) {
+    this.var = var;
+  }
+
+  @Override
+  public void add(double[] x) {
+    addValue(x[var]);
+  }
+
+  // Only the one variable is needed, so the observations are added 
+  // straight from its column.
+  @Override
+  public void addRows(double[][] data, int first, int count) {
+    double[] col = data[var];
+    for (int i = first; i < first + count; i++) {
+      addValue(col[i]);
+    }
+  }
+
+  @Override
+  public void remove(double[] x) {
+    double t = (double) (tFirst++);
+    double y = x[var];
+    if (n <= 1) {
+      n = 0;
+      tMean = yMean = ctt = cty = 0.0;
+    } else {
+      n--;
+      double dt = t - tMean;
+      tMean -= dt / n;
+      yMean -= (y - yMean) / n;
+      ctt -= dt * (t - tMean);
+      cty -= dt * (y - yMean);
+    }
+    if (y > 0.0) {
+      if (nLog <= 1) {
+        nLog = 0;
+        tMeanLog = lMean = cttLog = ctl = 0.0;
+      } else {
+        double l = Math.log(y);
+        nLog--;
+        double dt = t - tMeanLog;
+        tMeanLog -= dt / nLog;
+        lMean -= (l - lMean) / nLog;
+        cttLog -= dt * (t - tMeanLog);
+        ctl -= dt * (l - lMean);
+      }
+    } else {
+      nNonPositive--;
+    }
+  }
+
+  // This method reports whether the log trend can be found, i.e., whether
+  // all of the observations in use are positive.
+  public boolean haveLogTrend() {
+    return (nNonPositive == 0);
+  }
+
+  // This method returns the constant and slope of the trend of the 
+  // variable (or, if logs is true, of its log) against time, with the 
+  // oldest observation in use at time zero.
+  public double[] getTrend(boolean logs) {
+    double slope = (logs) ? ctl / cttLog : cty / ctt;
+    double constant = (logs) ? lMean - slope * (tMeanLog - tFirst)
+            : yMean - slope * (tMean - tFirst);
+    return new double[]{constant, slope};
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private void addValue(double y) {
+    // Adds an observation with value y at the next time.
+    double t = (double) (tNext++);
+    n++;
+    double dt = t - tMean;
+    tMean += dt / n;
+    yMean += (y - yMean) / n;
+    ctt += dt * (t - tMean);
+    cty += dt * (y - yMean);
+    if (y > 0.0) {
+      double l = Math.log(y);
+      nLog++;
+      dt = t - tMeanLog;
+      tMeanLog += dt / nLog;
+      lMean += (l - lMean) / nLog;
+      cttLog += dt * (t - tMeanLog);
+      ctl += dt * (l - lMean);
+    } else {
+      nNonPositive++;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Implements the reporters that draw samples from the normal, lognormal,
+ * student, chi-square, binomial and gamma distributions.  Each fills an
+ * array with the whole sample in one call and reports it as a list.  The
+ * draws come from NetLogo's own random number generator, so samples are
+ * reproducible under random-seed.
+ */
+package org.nlogo.extensions.stats;
+
+import org.nlogo.api.*;
+import org.nlogo.core.Syntax;
+import org.nlogo.core.SyntaxJ;
+
+public class SamplePrims {
+
+  public abstract static class Sample implements Reporter {
+    // The basis of the samplers, which all take the size of the sample
+    // followed by nparams parameters of the distribution.
+
+    private final int nparams;
+
+    Sample(int nparams) {
+      this.nparams = nparams;
+    }
+
+    // Fills sample with draws from the distribution with the given
+    // parameters.
+    abstract void fill(double[] sample, double[] params,
+            NetLogoRandomEngine engine) throws ExtensionException;
+
+    @Override
+    public Syntax getSyntax() {
+      int[] types = new int[nparams + 1];
+      java.util.Arrays.fill(types, Syntax.NumberType());
+      return SyntaxJ.reporterSyntax(types, Syntax.ListType());
+    }
+
+    @Override
+    public Object report(Argument args[], Context context)
+            throws ExtensionException, LogoException {
+      int n;
+      double[] params = new double[nparams];
+      try {
+        n = args[0].getIntValue();
+        for (int i = 0; i < nparams; i++) {
+          params[i] = args[i + 1].getDoubleValue();
+        }
+      } catch (LogoException e) {
+        throw new ExtensionException(e.getMessage());
+      }
+      if (n < 0) {
+        throw new ExtensionException("The size of the sample must be"
+                + " greater or equal to zero.");
+      }
+      double[] sample = new double[n];
+      fill(sample, params, new NetLogoRandomEngine(context.getRNG()));
+      return ExtnUtils.convertVectorToSimpleLogoList(sample);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class SampleNormal extends Sample {
+    // sample-normal n mean sd
+
+    public SampleNormal() {
+      super(2);
+    }
+
+    @Override
+    void fill(double[] sample, double[] params, NetLogoRandomEngine engine)
+            throws ExtensionException {
+      Distributions.sampleNormal(sample, params[0], params[1], engine);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class SampleLogNormal extends Sample {
+    // sample-lognormal n location size
+
+    public SampleLogNormal() {
+      super(2);
+    }
+
+    @Override
+    void fill(double[] sample, double[] params, NetLogoRandomEngine engine)
+            throws ExtensionException {
+      Distributions.sampleLogNormal(sample, params[0], params[1], engine);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class SampleStudentT extends Sample {
+    // sample-student n df
+
+    public SampleStudentT() {
+      super(1);
+    }
+
+    @Override
+    void fill(double[] sample, double[] params, NetLogoRandomEngine engine)
+            throws ExtensionException {
+      Distributions.sampleStudentT(sample, params[0], engine);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class SampleChiSquare extends Sample {
+    // sample-chi-square n df
+
+    public SampleChiSquare() {
+      super(1);
+    }
+
+    @Override
+    void fill(double[] sample, double[] params, NetLogoRandomEngine engine)
+            throws ExtensionException {
+      Distributions.sampleChiSquare(sample, params[0], engine);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class SampleBinomial extends Sample {
+    // sample-binomial n trials p
+
+    public SampleBinomial() {
+      super(2);
+    }
+
+    @Override
+    void fill(double[] sample, double[] params, NetLogoRandomEngine engine)
+            throws ExtensionException {
+      Distributions.sampleBinomial(sample, (int) params[0], params[1],
+              engine);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class SampleGamma extends Sample {
+    // sample-gamma n alpha lambda
+
+    public SampleGamma() {
+      super(2);
+    }
+
+    @Override
+    void fill(double[] sample, double[] params, NetLogoRandomEngine engine)
+            throws ExtensionException {
+      Distributions.sampleGamma(sample, params[0], params[1], engine);
+    }
+  }
+}
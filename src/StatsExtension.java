@@ -34,22 +34,17 @@ import org.nlogo.api.*;
 public class StatsExtension
         extends org.nlogo.api.DefaultClassManager {
 
-  // These class variables are used to keep track of all the LogoStatsTbls 
-  // are created. They are manipulated by the static addLogoStatsTbl method.
-  private static final java.util.WeakHashMap<LogoStatsTbl, Long> LogoStatsTbls =
-          new java.util.WeakHashMap<>();
-  private static long next = -1;
-
-  public static long addLogoStatsTbl(LogoStatsTbl tbl) {
-    StatsExtension.next++;
-    StatsExtension.LogoStatsTbls.put(tbl, next);
-    return next;
-  }
-  public static long addLogoStatsTbl(LogoStatsTbl tbl, long id) {
-    StatsExtension.LogoStatsTbls.put(tbl, id);
-    next = StrictMath.max(StatsExtension.next, id);
-    return id;
-  }
+  // This registry keeps track of all the LogoStatsTbls created in this
+  // workspace.  NetLogo makes a StatsExtension for each workspace, so 
+  // parallel BehaviorSpace runs each have their own.  It is handed to the
+  // primitives that create tables.
+  private final DistributionCache cache = new DistributionCache();
+  private final TblRegistry registry = new TblRegistry(cache);
+  // Likewise, the precision chosen by set-precision is this workspace's
+  // own, and is handed to the normal and lognormal primitives.  So is the
+  // distribution cache, which is handed to the primitives that use it and,
+  // through the registry, to the tables for their p-values.
+  private final Precision precision = new Precision();
   
   public static LogoStatsTbl getTblFromArgument(Argument arg)
           throws ExtensionException, LogoException {
@@ -82,11 +77,15 @@ public class StatsExtension
   public void load(org.nlogo.api.PrimitiveManager primManager) {
 
     primManager.addPrimitive("newtable",
-            new TblPrims.NewTable());
+            new TblPrims.NewTable(registry));
+    primManager.addPrimitive("newtable-window",
+            new TblPrims.NewWindowTable(registry));
     primManager.addPrimitive("newtable-from-row-list",
-            new TblPrims.NewTableFromRowList());
+            new TblPrims.NewTableFromRowList(registry));
     primManager.addPrimitive("add",
             new TblPrims.AddNewRow());
+    primManager.addPrimitive("add-rows",
+            new TblPrims.AddRows());
     primManager.addPrimitive("get-data-as-list",
             new TblPrims.GetDataAsNestedList());
     primManager.addPrimitive("get-observations",
@@ -103,6 +102,8 @@ public class StatsExtension
             new TblPrims.SetObsUsed());
     primManager.addPrimitive("trim-data",
             new TblPrims.TrimDataTable());
+    primManager.addPrimitive("reserve",
+            new TblPrims.ReserveRows());
     primManager.addPrimitive("use-Bessel?",
             new CorrelPrims.UseBesselCorrection());
 
@@ -110,11 +111,19 @@ public class StatsExtension
             new CorrelPrims.CorrelationMatrix());
     primManager.addPrimitive("covariance",
             new CorrelPrims.VarCovarMatrix());
+    primManager.addPrimitive("correlation-of",
+            new CorrelPrims.CorrelationOf());
+    primManager.addPrimitive("covariance-of",
+            new CorrelPrims.CovarianceOf());
 
     primManager.addPrimitive("regress-all",
             new RegressionPrims.RegressAll());
     primManager.addPrimitive("regress-on",
             new RegressionPrims.RegressOn());
+    primManager.addPrimitive("regress-many",
+            new RegressionPrims.RegressMany());
+    primManager.addPrimitive("use-recursive-regression?",
+            new RegressionPrims.UseRecursiveRegression());
     primManager.addPrimitive("get-rstats",
             new RegressionPrims.GetRegressionStats());
     primManager.addPrimitive("get-rcstats",
@@ -142,40 +151,92 @@ public class StatsExtension
 
     primManager.addPrimitive("quantile", new DescripPrims.Quantile());
     primManager.addPrimitive("quantiles", new DescripPrims.Quantiles());
+    primManager.addPrimitive("quantiles-all", new DescripPrims.QuantilesAll());
     primManager.addPrimitive("percentile", new DescripPrims.Percentile());
+    primManager.addPrimitive("set-quantile-method",
+            new DescripPrims.SetQuantileMethod());
+    primManager.addPrimitive("set-sketch-accuracy",
+            new DescripPrims.SetSketchAccuracy());
 
     primManager.addPrimitive("normal",
             new DescripPrims.NormalDensity());
     primManager.addPrimitive("normal-left",
-            new DescripPrims.NormalArea());
+            new DescripPrims.NormalArea(precision));
     primManager.addPrimitive("normal-inverse",
-            new DescripPrims.NormalInverse());
+            new DescripPrims.NormalInverse(precision));
+    primManager.addPrimitive("normal-list",
+            new DescripPrims.NormalDensityList());
+    primManager.addPrimitive("normal-left-list",
+            new DescripPrims.NormalAreaList(precision));
+    primManager.addPrimitive("normal-inverse-list",
+            new DescripPrims.NormalInverseList(precision));
 
     primManager.addPrimitive("lognormal",
             new DescripPrims.PDFLogNormal());
     primManager.addPrimitive("lognormal-left",
-            new DescripPrims.CDFLogNormal());
+            new DescripPrims.CDFLogNormal(precision));
     primManager.addPrimitive("lognormal-inverse",
-            new DescripPrims.CDFInverseLogNormal());
+            new DescripPrims.CDFInverseLogNormal(precision));
+    primManager.addPrimitive("lognormal-list",
+            new DescripPrims.PDFLogNormalList());
+    primManager.addPrimitive("lognormal-left-list",
+            new DescripPrims.CDFLogNormalList(precision));
+    primManager.addPrimitive("lognormal-inverse-list",
+            new DescripPrims.CDFInverseLogNormalList(precision));
 
     primManager.addPrimitive("student-left",
             new DescripPrims.StudentArea());
     primManager.addPrimitive("student-inverse",
-            new DescripPrims.StudentInverse());
+            new DescripPrims.StudentInverse(cache));
+    primManager.addPrimitive("student-left-list",
+            new DescripPrims.StudentAreaList());
+    primManager.addPrimitive("student-inverse-list",
+            new DescripPrims.StudentInverseList(cache));
+    primManager.addPrimitive("set-distribution-cache-size",
+            new DescripPrims.SetDistributionCacheSize(cache));
+    primManager.addPrimitive("distribution-cache-stats",
+            new DescripPrims.DistributionCacheStats(cache));
+    primManager.addPrimitive("use-binomial-tables?",
+            new DescripPrims.UseBinomialTables(cache));
+    primManager.addPrimitive("set-precision",
+            new DescripPrims.SetPrecision(precision));
 
     primManager.addPrimitive("binomial-coefficient",
             new DescripPrims.BinomialCoeff());
     primManager.addPrimitive("binomial-probability",
-            new DescripPrims.BinomialProbibility());
+            new DescripPrims.BinomialProbibility(cache));
     primManager.addPrimitive("binomial-sum-to",
-            new DescripPrims.BinomialThroughK());
+            new DescripPrims.BinomialThroughK(cache));
     primManager.addPrimitive("binomial-sum-above",
-            new DescripPrims.BinomialComplemented());
+            new DescripPrims.BinomialComplemented(cache));
+    primManager.addPrimitive("binomial-probability-list",
+            new DescripPrims.BinomialProbibilityList(cache));
+    primManager.addPrimitive("binomial-sum-to-list",
+            new DescripPrims.BinomialThroughKList(cache));
+    primManager.addPrimitive("binomial-sum-above-list",
+            new DescripPrims.BinomialComplementedList(cache));
 
     primManager.addPrimitive("chi-square-left",
             new DescripPrims.ChiSquare());
     primManager.addPrimitive("chi-square-right",
             new DescripPrims.ChiSquareComplemented());
+    primManager.addPrimitive("chi-square-left-list",
+            new DescripPrims.ChiSquareList());
+    primManager.addPrimitive("chi-square-right-list",
+            new DescripPrims.ChiSquareComplementedList());
+
+    primManager.addPrimitive("sample-normal",
+            new SamplePrims.SampleNormal());
+    primManager.addPrimitive("sample-lognormal",
+            new SamplePrims.SampleLogNormal());
+    primManager.addPrimitive("sample-student",
+            new SamplePrims.SampleStudentT());
+    primManager.addPrimitive("sample-chi-square",
+            new SamplePrims.SampleChiSquare());
+    primManager.addPrimitive("sample-binomial",
+            new SamplePrims.SampleBinomial());
+    primManager.addPrimitive("sample-gamma",
+            new SamplePrims.SampleGamma());
 
     primManager.addPrimitive("gamma",
             new DescripPrims.GammaFunction());
@@ -15,6 +15,12 @@ public class TblPrims {
 
     // Constructs and returns an empty LogoStatsTbl
 
+    private final TblRegistry registry;
+
+    public NewTable(TblRegistry registry) {
+      this.registry = registry;
+    }
+
     @Override
     public Syntax getSyntax() {
       return SyntaxJ.reporterSyntax(new int[]{}, Syntax.WildcardType());
@@ -31,7 +37,48 @@ public class TblPrims {
     @Override
     public Object report(Argument args[], Context context)
             throws ExtensionException, LogoException {
-      return new LogoStatsTbl();
+      return new LogoStatsTbl(registry);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class NewWindowTable implements Reporter {
+
+    // Constructs and returns an empty LogoStatsTbl that holds at most n
+    // observations.  Once it is full, each new observation replaces the 
+    // oldest one, so the table always holds the most recent n.
+
+    private final TblRegistry registry;
+
+    public NewWindowTable(TblRegistry registry) {
+      this.registry = registry;
+    }
+
+    @Override
+    public Syntax getSyntax() {
+      return SyntaxJ.reporterSyntax(new int[]{Syntax.NumberType()},
+              Syntax.WildcardType());
+    }
+
+    /**
+     *
+     * @param args
+     * @param context
+     * @return
+     * @throws ExtensionException
+     * @throws LogoException
+     */
+    @Override
+    public Object report(Argument args[], Context context)
+            throws ExtensionException, LogoException {
+      int n = args[0].getIntValue();
+      if (n < 1) {
+        throw new org.nlogo.api.ExtensionException(
+                "The size of a window table must be at least one.");
+      }
+      LogoStatsTbl tbl = new LogoStatsTbl(registry);
+      tbl.useWindow(n);
+      return tbl;
     }
   }
 
@@ -41,6 +88,12 @@ public class TblPrims {
     // Constructs and returns a new LogoStatsTbl with data loaded row by 
     // row from a nested LogoList
 
+    private final TblRegistry registry;
+
+    public NewTableFromRowList(TblRegistry registry) {
+      this.registry = registry;
+    }
+
     @Override
     public Syntax getSyntax() {
       return SyntaxJ.reporterSyntax(new int[]{Syntax.ListType()},
@@ -58,8 +111,8 @@ public class TblPrims {
     @Override
     public Object report(Argument args[], Context context)
             throws ExtensionException, LogoException {
-      return new LogoStatsTbl(
-              new Jama.Matrix(ExtnUtils.convertNestedLogoListToArray(args[0].getList())));
+      return new LogoStatsTbl(registry,
+              ExtnUtils.convertNestedLogoListToColumns(args[0].getList()));
     }
   }
 
@@ -100,6 +153,74 @@ public class TblPrims {
     }
   }
 
+  /* ---------------------------------------------------------------------- */
+  public static class AddRows implements Command {
+    // Adds several rows of data to the data table at once from a nested 
+    // LogoList, a list of rows.  The list is checked and converted once, 
+    // the table grows at most once, and any running statistics are 
+    // brought up to date for all of the rows together, which is much
+    // quicker than adding the rows one at a time.  An empty list adds
+    // nothing.
+
+    @Override
+    public Syntax getSyntax() {
+      return SyntaxJ.commandSyntax(new int[]{Syntax.WildcardType(),
+        Syntax.ListType()});
+    }
+
+    @Override
+    public void perform(Argument args[], Context context)
+            throws ExtensionException, LogoException {
+      LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
+      LogoList rowList = args[1].getList();
+      if (rowList.isEmpty()) {
+        return;
+      }
+      double[][] newRows = ExtnUtils.convertNestedLogoListToArray(rowList);
+      // check to see that the new rows match the existing row length.
+      if (tbl.haveData() && tbl.getNVars() != newRows[0].length) {
+        throw new org.nlogo.api.ExtensionException(
+                "Number of variables in the observations to be added "
+                + "does not match the dimension of the StatsTbl.");
+      }
+      tbl.addRows(newRows);
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  public static class ReserveRows implements Command {
+    // Pre-sizes the data table so that it can hold at least the specified
+    // number of observations without having to grow.  This is useful when
+    // the length of the run is known in advance.
+
+    @Override
+    public Syntax getSyntax() {
+      return SyntaxJ.commandSyntax(new int[]{Syntax.WildcardType(),
+        Syntax.NumberType()});
+    }
+
+    /**
+     *
+     * @param args
+     * @param context
+     * @throws ExtensionException
+     * @throws LogoException
+     */
+    @Override
+    public void perform(Argument args[], Context context)
+            throws ExtensionException, LogoException {
+
+      LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
+      int n = args[1].getIntValue();
+      if (n < 0) {
+        throw new org.nlogo.api.ExtensionException(
+                "The number of observations to reserve must be "
+                + "greater or equal to zero.");
+      }
+      tbl.reserveRows(n);
+    }
+  }
+
   /* ---------------------------------------------------------------------- */
   public static class TrimDataTable implements Command {
     // Trims the data table to the specified number of observations only
@@ -123,7 +244,13 @@ public class TblPrims {
             throws ExtensionException, LogoException {
 
       LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
-      tbl.trimRows(args[1].getIntValue());
+      int n = args[1].getIntValue();
+      if (n < 0) {
+        throw new org.nlogo.api.ExtensionException(
+                "The number of observations to keep must be "
+                + "greater or equal to zero.");
+      }
+      tbl.trimRows(n);
     }
   }
 
@@ -150,7 +277,8 @@ public class TblPrims {
             throws ExtensionException, LogoException {
 
       LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
-      return ExtnUtils.convertArrayToNestedLogoList(tbl.toArray());
+      return ExtnUtils.convertColumnsToNestedLogoList(tbl.getColumnViews(),
+              tbl.getNObs());
     }
   }
 
@@ -198,7 +326,9 @@ public class TblPrims {
 
       LogoStatsTbl tbl = StatsExtension.getTblFromArgument(args[0]);
       int index = ExtnUtils.getVarNumberFromArg(tbl, args[1]);
-      return ExtnUtils.convertVectorToSimpleLogoList(tbl.getColumn(index, false));
+      LogoStatsTbl.ColumnView col = tbl.getColumnView(index, false);
+      return ExtnUtils.convertVectorToSimpleLogoList(col.values, col.offset,
+              col.length);
     }
   }
 
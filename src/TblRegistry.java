@@ -0,0 +1,62 @@
+/*
+ * Keeps track of the LogoStatsTbls created in one NetLogo workspace and
+ * gives each an id.  Every workspace loads its own StatsExtension, which
+ * holds its own registry, so when BehaviorSpace runs several workspaces
+ * in parallel threads of one JVM they neither share nor contend for one 
+ * set of tables.  The ids come from an atomic counter, and the tables are
+ * held weakly, so that a table the model has dropped can be collected.
+ * The registry also hands the tables the workspace's DistributionCache,
+ * through which they find their p-values.
+ */
+package org.nlogo.extensions.stats;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TblRegistry {
+
+  private final Map<LogoStatsTbl, Long> tbls = new WeakHashMap<>();
+  private final AtomicLong next = new AtomicLong(-1);
+  private final DistributionCache cache;
+
+  public TblRegistry() {
+    this(new DistributionCache());
+  }
+
+  public TblRegistry(DistributionCache cache) {
+    this.cache = cache;
+  }
+
+  // This method returns the workspace's distribution cache.
+  public DistributionCache getCache() {
+    return cache;
+  }
+
+  // This method registers tbl and returns its newly allotted id.
+  public long add(LogoStatsTbl tbl) {
+    long id = next.incrementAndGet();
+    put(tbl, id);
+    return id;
+  }
+
+  // This method registers tbl under the given id, as import-world would,
+  // and makes sure that ids allotted later are greater.
+  public long add(LogoStatsTbl tbl, long id) {
+    long n = next.get();
+    while (n < id && !next.compareAndSet(n, id)) {
+      n = next.get();
+    }
+    put(tbl, id);
+    return id;
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private void put(LogoStatsTbl tbl, long id) {
+    // A WeakHashMap is not thread-safe, but as each workspace has its own
+    // registry the lock is almost never contended.
+    synchronized (tbls) {
+      tbls.put(tbl, id);
+    }
+  }
+}
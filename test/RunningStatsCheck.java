@@ -0,0 +1,126 @@
+/*
+ * Checks that the running statistics a LogoStatsTbl keeps up to date as
+ * observations are added and drop out of use do not drift from those
+ * found afresh from the observations in use.  Run it with "make check".
+ *
+ * A long series with a strong trend is added one observation at a time
+ * to a table that uses only its most recent observations, and to a window
+ * table, while the means, standard deviations, covariances and the
+ * regression from the running moments are asked for every few additions
+ * so that the running statistics are kept throughout.  At intervals,
+ * those are compared with the same statistics of a new table holding
+ * just the observations in use.  The program exits with a non-zero
+ * status if any differs by more than the tolerance.
+ */
+package org.nlogo.extensions.stats;
+
+import java.util.Random;
+import org.nlogo.api.ExtensionException;
+
+public class RunningStatsCheck {
+
+  private static final int nAdds = 1000000;
+  private static final int inUse = 100;
+  private static final int queryEvery = 7;
+  private static final int checkEvery = 100000;
+  private static final double tolerance = 1e-6;
+  private static final int[] vars = {0, 1, 2};
+  private static final TblRegistry registry = new TblRegistry();
+  private static int failures = 0;
+
+  public static void main(String[] args) throws ExtensionException {
+    for (boolean window : new boolean[]{false, true}) {
+      LogoStatsTbl tbl = new LogoStatsTbl(registry);
+      if (window) {
+        tbl.useWindow(inUse);
+      } else {
+        tbl.setNObsUsed(inUse);
+      }
+      tbl.useRecursiveRegression(true);
+      String name = (window) ? "window " + inUse
+              : "use-most-recent " + inUse;
+      run(name, tbl);
+    }
+    if (failures > 0) {
+      System.out.println(failures + " check(s) failed.");
+      System.exit(1);
+    }
+    System.out.println("All checks passed.");
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static void run(String name, LogoStatsTbl tbl)
+          throws ExtensionException {
+    // Adds the series to tbl, querying it every queryEvery additions and
+    // checking it against a fresh table every checkEvery.
+    Random rng = new Random(1);
+    double[][] row = new double[1][3];
+    for (int i = 1; i <= nAdds; i++) {
+      row[0][0] = 1e6 + 10.0 * i + rng.nextGaussian();
+      row[0][1] = 1e6 + 5.0 * i + 3.0 * rng.nextGaussian();
+      row[0][2] = rng.nextGaussian();
+      tbl.addRows(row);
+      if (i % queryEvery == 0) {
+        tbl.getMeans();
+        tbl.getStdDevs();
+        tbl.getVarCovars();
+        tbl.regress(vars);
+      }
+      if (i % checkEvery == 0) {
+        check(name + ", after " + i + " additions", tbl);
+      }
+    }
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static void check(String what, LogoStatsTbl tbl)
+          throws ExtensionException {
+    // Compares the running statistics of tbl with those of a new table
+    // holding copies of its observations in use.
+    double[][] columns = new double[3][];
+    for (int j = 0; j < 3; j++) {
+      columns[j] = tbl.getColumn(j, false);
+    }
+    LogoStatsTbl fresh = new LogoStatsTbl(registry, columns);
+    double[] sd = fresh.getStdDevs()[0];
+    double worst = 0.0;
+    worst = Math.max(worst, maxRelDiff(tbl.getMeans()[0],
+            fresh.getMeans()[0]));
+    worst = Math.max(worst, maxRelDiff(tbl.getStdDevs()[0], sd));
+    // The covariances are measured against the product of the standard
+    // deviations, as some are near zero.
+    double[][] cov = tbl.getVarCovars();
+    double[][] freshCov = fresh.getVarCovars();
+    for (int j = 0; j < 3; j++) {
+      for (int k = 0; k < 3; k++) {
+        worst = Math.max(worst, Math.abs(cov[j][k] - freshCov[j][k])
+                / (sd[j] * sd[k]));
+      }
+    }
+    // The coefficients are measured against their standard errors, as a
+    // coefficient near zero is found only to within a small fraction of
+    // its standard error by either method.
+    double[] coeffs = tbl.regress(vars)[0].clone();
+    double[] freshCoeffs = fresh.regress(vars)[0];
+    double[] se = fresh.getRCStats()[2];
+    for (int j = 0; j < coeffs.length; j++) {
+      worst = Math.max(worst, Math.abs(coeffs[j] - freshCoeffs[j]) / se[j]);
+    }
+    boolean ok = worst <= tolerance;
+    if (!ok) {
+      failures++;
+    }
+    System.out.printf("%-40s largest relative difference %9.2e  %s%n",
+            what, worst, (ok) ? "ok" : "FAILED");
+  }
+
+  /* ---------------------------------------------------------------------- */
+  private static double maxRelDiff(double[] a, double[] b) {
+    double worst = 0.0;
+    for (int i = 0; i < a.length; i++) {
+      worst = Math.max(worst, Math.abs(a[i] - b[i])
+              / Math.max(Math.abs(b[i]), Double.MIN_NORMAL));
+    }
+    return worst;
+  }
+}